@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+// Наполнение хранилищ для бенчмарков: детерминированно, чтобы прогоны были сравнимы между изменениями
+final class BenchmarkData {
+    // лайки при наполнении ставятся от ID, которых нет среди пользователей, чтобы не мешать лайкам из бенчмарков
+    static final long SEED_LIKER_BASE = 10_000_000L;
+
+    private BenchmarkData() {
+    }
+
+    static Film film() {
+        return new Film(0L, "Фильм", "Описание фильма", LocalDate.of(2000, 1, 1), 120, new HashSet<>());
+    }
+
+    static User user() {
+        return new User(0L, "user@mail.ru", "user", "Имя", LocalDate.of(1990, 1, 1), new HashSet<>());
+    }
+
+    // Фильмы с 0..maxLikes лайками: рейтинг популярных получается неоднородным
+    static InMemoryFilmStorage films(int count, int maxLikes) {
+        SplittableRandom random = new SplittableRandom(42);
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (int i = 0; i < count; i++) {
+            Film film = film();
+            int likes = random.nextInt(maxLikes + 1);
+            for (int like = 0; like < likes; like++) {
+                film.getLikes().add(SEED_LIKER_BASE + like);
+            }
+            storage.createFilm(film);
+        }
+        return storage;
+    }
+
+    // Лайки с длинным хвостом: каждый второй лайк получает фильм, выбранный пропорционально уже набранным
+    // лайкам, остальные — случайный. У хитов десятки тысяч лайков, у большинства фильмов — единицы.
+    // Множества собираются заранее и загружаются через restoreFilm, минуя addLike
+    static InMemoryFilmStorage likedFilms(int films, int users, int likesPerUser) {
+        SplittableRandom random = new SplittableRandom(42);
+        LongHashSet[] likes = new LongHashSet[films + 1];
+        for (int id = 1; id <= films; id++) {
+            likes[id] = new LongHashSet();
+        }
+        long[] liked = new long[users * likesPerUser];
+        int count = 0;
+        for (int userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < likesPerUser; i++) {
+                int filmId = count > 0 && random.nextBoolean() ? (int) liked[random.nextInt(count)]
+                        : 1 + random.nextInt(films);
+                if (likes[filmId].add(userId)) {
+                    liked[count++] = filmId;
+                }
+            }
+        }
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (int id = 1; id <= films; id++) {
+            Film film = film();
+            film.setId(id);
+            film.setLikes(likes[id]);
+            storage.restoreFilm(film);
+        }
+        return storage;
+    }
+
+    // Даты релиза равномерно за 1950–2024, длительность — от 60 до 240 минут
+    static InMemoryFilmStorage datedFilms(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        long firstDay = LocalDate.of(1950, 1, 1).toEpochDay();
+        long days = LocalDate.of(2025, 1, 1).toEpochDay() - firstDay;
+        for (int i = 0; i < count; i++) {
+            Film film = film();
+            film.setReleaseDate(LocalDate.ofEpochDay(firstDay + random.nextLong(days)));
+            film.setDuration(60 + random.nextInt(181));
+            storage.createFilm(film);
+        }
+        return storage;
+    }
+
+    // Словарь из четырёх слогов на слово: чётные слова кириллицей, нечётные латиницей
+    static String[] vocabulary(int size) {
+        String[] cyrillic = {"ка", "ло", "ми", "ра", "то", "ну", "се", "вё", "жи", "до", "пу", "ше"};
+        String[] latin = {"ka", "lo", "mi", "ra", "to", "nu", "se", "ve", "zhi", "do", "pu", "she"};
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            String[] syllables = i % 2 == 0 ? cyrillic : latin;
+            StringBuilder word = new StringBuilder();
+            for (int rest = i / 2, syllable = 0; syllable < 4; syllable++, rest /= syllables.length) {
+                word.append(syllables[rest % syllables.length]);
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    // Название из трёх и описание из пятнадцати слов словаря; частота слова падает с его номером,
+    // поэтому первые слова есть в сотнях тысяч фильмов, а последние — в единицах. У каждого четвёртого
+    // фильма 1..20 лайков: при отсечении кандидатов поиск проверяет верхушку рейтинга
+    static InMemoryFilmStorage searchableFilms(int count, String[] vocabulary) {
+        SplittableRandom random = new SplittableRandom(42);
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (int i = 0; i < count; i++) {
+            Film film = film();
+            film.setName(words(random, vocabulary, 3));
+            film.setDescription(words(random, vocabulary, 15));
+            int likes = random.nextInt(4) == 0 ? 1 + random.nextInt(20) : 0;
+            for (int like = 0; like < likes; like++) {
+                film.getLikes().add(SEED_LIKER_BASE + like);
+            }
+            storage.createFilm(film);
+        }
+        return storage;
+    }
+
+    private static String words(SplittableRandom random, String[] vocabulary, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            double uniform = random.nextDouble();
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(vocabulary[(int) (uniform * uniform * uniform * vocabulary.length)]);
+        }
+        return text.toString();
+    }
+
+    // Дружба симметрична; множества собираются заранее и загружаются через restoreUser, минуя addFriend
+    static InMemoryUserStorage users(int count, int friendsPerUser) {
+        SplittableRandom random = new SplittableRandom(42);
+        LongHashSet[] friends = new LongHashSet[count + 1];
+        for (int id = 1; id <= count; id++) {
+            friends[id] = new LongHashSet(friendsPerUser);
+        }
+        for (int id = 1; id <= count; id++) {
+            for (int i = 0; i < friendsPerUser / 2; i++) {
+                int friendId = 1 + random.nextInt(count);
+                if (friendId != id) {
+                    friends[id].add(friendId);
+                    friends[friendId].add(id);
+                }
+            }
+        }
+        return restore(friends);
+    }
+
+    // Граф с «знаменитостями» (предпочтительное присоединение): второй конец каждой новой связи выбирается
+    // среди концов уже существующих связей, то есть с вероятностью, пропорциональной числу друзей.
+    // Средняя степень та же, что в users, а у самых связанных узлов друзей в сотни раз больше
+    static InMemoryUserStorage powerLawUsers(int count, int friendsPerUser) {
+        SplittableRandom random = new SplittableRandom(42);
+        LongHashSet[] friends = new LongHashSet[count + 1];
+        long[] endpoints = new long[count * friendsPerUser];
+        int edges = 0;
+        for (int id = 1; id <= count; id++) {
+            friends[id] = new LongHashSet();
+            for (int i = 0; i < friendsPerUser / 2 && id > 1; i++) {
+                int friendId = edges == 0 ? 1 + random.nextInt(id - 1) : (int) endpoints[random.nextInt(edges)];
+                if (friendId != id && friends[id].add(friendId)) {
+                    friends[friendId].add(id);
+                    endpoints[edges++] = id;
+                    endpoints[edges++] = friendId;
+                }
+            }
+        }
+        return restore(friends);
+    }
+
+    private static InMemoryUserStorage restore(LongHashSet[] friends) {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int id = 1; id < friends.length; id++) {
+            User user = user();
+            user.setId(id);
+            user.setFriends(friends[id]);
+            storage.restoreUser(user);
+        }
+        return storage;
+    }
+}
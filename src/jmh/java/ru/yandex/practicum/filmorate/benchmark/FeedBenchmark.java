@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.service.FeedProperties;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Лента на графе со «знаменитостями»: публикация обычным пользователем раскладывается по входящим друзей,
+// публикация узлом-знаменитостью пишется только в его журнал. Чтение страницы не зависит от числа друзей
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class FeedBenchmark {
+    private static final int PREFILLED_EVENTS = 1_000_000;
+    private static final int PAGE = 50;
+
+    @Param({"100000"})
+    public int users;
+
+    private FeedService feedService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage userStorage = BenchmarkData.powerLawUsers(users, 20);
+        feedService = new FeedService(userStorage, new FeedProperties(), new SimpleMeterRegistry());
+        for (int i = 0; i < PREFILLED_EVENTS; i++) {
+            feedService.likeAdded(randomUser(), 1 + i % 10_000);
+        }
+    }
+
+    @Benchmark
+    public void publishLike() {
+        feedService.likeAdded(randomUser(), 1);
+    }
+
+    // Первые ID power-law графа — самые связанные узлы
+    @Benchmark
+    public void publishLikeByHub() {
+        feedService.likeAdded(1 + ThreadLocalRandom.current().nextInt(10), 1);
+    }
+
+    @Benchmark
+    public Page<FeedEvent> readFeed() {
+        return feedService.getFeed(randomUser(), 0, PAGE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Page<FeedEvent> readFeedContended() {
+        return feedService.getFeed(randomUser(), 0, PAGE);
+    }
+
+    private long randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
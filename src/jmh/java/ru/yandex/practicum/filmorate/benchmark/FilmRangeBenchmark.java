@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Фильтры GET /films на 100k и 1M фильмов: время должно зависеть от размера ответа, а не каталога.
+// Месяц релизов (около 1100 фильмов на 1M, отдаётся первые 100), месяц с условием на длительность
+// и самые короткие фильмы
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FilmRangeBenchmark {
+    private static final int LIMIT = 100;
+
+    @Param({"100000", "1000000"})
+    public int films;
+
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = BenchmarkData.datedFilms(films);
+    }
+
+    @Benchmark
+    public List<Film> releasedInMonth() {
+        LocalDate from = randomMonth();
+        return filmStorage.findFilms(new FilmFilter(from, from.plusMonths(1), null, null), null, LIMIT);
+    }
+
+    @Benchmark
+    public List<Film> releasedInMonthAndShort() {
+        LocalDate from = randomMonth();
+        return filmStorage.findFilms(new FilmFilter(from, from.plusMonths(1), null, 90L), null, LIMIT);
+    }
+
+    @Benchmark
+    public List<Film> shortest() {
+        return filmStorage.findFilms(new FilmFilter(null, null, null, 61L), null, LIMIT);
+    }
+
+    private static LocalDate randomMonth() {
+        return LocalDate.of(1950, 1, 1).plusMonths(ThreadLocalRandom.current().nextInt(12 * 75));
+    }
+}
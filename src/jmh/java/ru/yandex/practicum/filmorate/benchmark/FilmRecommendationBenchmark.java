@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.service.RecommendationProperties;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Рекомендации фильмов для случайного пользователя на 100k и 1M лайков (по 20 на пользователя, 10k фильмов
+// с длинным хвостом популярности). Бюджет из README — 5 мс на запрос при 1M лайков
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FilmRecommendationBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int LIKES_PER_USER = 20;
+
+    @Param({"100000", "1000000"})
+    public int likes;
+
+    private InMemoryFilmStorage filmStorage;
+    private RecommendationProperties properties;
+    private int users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = likes / LIKES_PER_USER;
+        filmStorage = BenchmarkData.likedFilms(FILMS, users, LIKES_PER_USER);
+        properties = new RecommendationProperties();
+    }
+
+    @Benchmark
+    public Map<Long, Integer> recommendFilms() {
+        return recommend();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Map<Long, Integer> recommendFilmsContended() {
+        return recommend();
+    }
+
+    private Map<Long, Integer> recommend() {
+        long userId = 1 + ThreadLocalRandom.current().nextInt(users);
+        return filmStorage.recommendFilms(userId, 10, properties.getMaxFanOut(), properties.getMaxNeighbours());
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Поиск по названиям и описаниям на 100k и 1M фильмов со словарём из 20k слов, кириллица и латиница.
+// Редкое слово, префикс частого слова (кандидатов больше всего) и пара слов. Бюджет — меньше миллисекунды
+// на запрос при 1M фильмов; префикс частого слова в него не укладывается, результаты — в README
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class FilmSearchBenchmark {
+    private static final int VOCABULARY = 20_000;
+    private static final int LIMIT = 10;
+
+    @Param({"100000", "1000000"})
+    public int films;
+
+    private InMemoryFilmStorage filmStorage;
+    private String[] vocabulary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vocabulary = BenchmarkData.vocabulary(VOCABULARY);
+        filmStorage = BenchmarkData.searchableFilms(films, vocabulary);
+    }
+
+    @Benchmark
+    public List<Film> rareWord() {
+        return filmStorage.searchFilms(word(VOCABULARY / 2, VOCABULARY), LIMIT);
+    }
+
+    @Benchmark
+    public List<Film> frequentPrefix() {
+        return filmStorage.searchFilms(word(0, 10).substring(0, 3), LIMIT);
+    }
+
+    @Benchmark
+    public List<Film> twoWords() {
+        return filmStorage.searchFilms(word(0, 100) + " " + word(100, 1_000), LIMIT);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<Film> twoWordsContended() {
+        return filmStorage.searchFilms(word(0, 100) + " " + word(100, 1_000), LIMIT);
+    }
+
+    private String word(int from, int to) {
+        return vocabulary[ThreadLocalRandom.current().nextInt(from, to)];
+    }
+}
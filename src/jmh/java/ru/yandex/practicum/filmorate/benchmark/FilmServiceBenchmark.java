@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.ChangeAction;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.service.FeedProperties;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCacheProperties;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Популярные фильмы (из кэша и напрямую из индекса) и постановка лайка: в один поток, под конкуренцией
+// и смешанная нагрузка, где лайки постоянно сбрасывают кэш читателям; сотня лайков по одному и одним пакетом
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FilmServiceBenchmark {
+    private static final int LIKERS = 64;
+    private static final int BATCH = 100;
+    private static final AtomicLong NEXT_LIKER = new AtomicLong();
+
+    @Param({"10000", "100000", "1000000"})
+    public int films;
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = BenchmarkData.films(films, 50);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < LIKERS; i++) {
+            userStorage.createUser(BenchmarkData.user());
+        }
+        filmService = new FilmService(filmStorage, userStorage,
+                new PopularFilmsCache(new PopularFilmsCacheProperties(), new SimpleMeterRegistry()),
+                new FeedService(userStorage, new FeedProperties(), new SimpleMeterRegistry()),
+                new TrendingFilms(), new SimpleMeterRegistry());
+    }
+
+    // У каждого потока свой пользователь, поэтому лайк никогда не повторяется
+    @State(Scope.Thread)
+    public static class Liker {
+        long userId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            userId = 1 + NEXT_LIKER.getAndIncrement() % LIKERS;
+        }
+    }
+
+    @Benchmark
+    public List<Film> popularFilmsCached() {
+        return filmService.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> popularFilmsFromIndex() {
+        return filmStorage.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public void addAndRemoveLike(Liker liker) {
+        likeAndUnlike(liker.userId);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addAndRemoveLikeContended(Liker liker) {
+        likeAndUnlike(liker.userId);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public List<Film> mixedPopularFilms() {
+        return filmService.getPopularFilms(10);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedAddAndRemoveLike(Liker liker) {
+        likeAndUnlike(liker.userId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addAndRemoveLikesOneByOne(Liker liker) {
+        long first = 1 + ThreadLocalRandom.current().nextInt(films - BATCH);
+        for (long filmId = first; filmId < first + BATCH; filmId++) {
+            filmService.addLike(filmId, liker.userId);
+        }
+        for (long filmId = first; filmId < first + BATCH; filmId++) {
+            filmService.removeLike(filmId, liker.userId);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<BatchItemResult> addAndRemoveLikesBatch(Liker liker) {
+        long first = 1 + ThreadLocalRandom.current().nextInt(films - BATCH);
+        List<LikeChange> changes = new ArrayList<>(2 * BATCH);
+        for (long filmId = first; filmId < first + BATCH; filmId++) {
+            changes.add(new LikeChange(filmId, liker.userId, ChangeAction.ADD));
+        }
+        for (long filmId = first; filmId < first + BATCH; filmId++) {
+            changes.add(new LikeChange(filmId, liker.userId, ChangeAction.REMOVE));
+        }
+        return filmService.applyLikeChanges(changes);
+    }
+
+    private void likeAndUnlike(long userId) {
+        long filmId = 1 + ThreadLocalRandom.current().nextInt(films);
+        filmService.addLike(filmId, userId);
+        filmService.removeLike(filmId, userId);
+    }
+}
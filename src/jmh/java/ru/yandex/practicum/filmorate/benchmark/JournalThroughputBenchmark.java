@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.FsyncPolicy;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.journal.WriteAheadLog;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Пропускная способность записи лайков: чистый in-memory режим против журнала с разными политиками fsync.
+// Запуск после mvn -Pbenchmark test-compile: java -cp target/classes:target/test-classes:<зависимости> \
+//     ru.yandex.practicum.filmorate.benchmark.JournalThroughputBenchmark [потоков] [лайков на поток]
+public class JournalThroughputBenchmark {
+    private static final int FILMS = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int likesPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        run("прогрев", threads, likesPerThread, null);
+        run("in-memory", threads, likesPerThread, null);
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            run("wal fsync=" + policy, threads, likesPerThread, policy);
+        }
+    }
+
+    private static void run(String name, int threads, int likesPerThread, FsyncPolicy policy) throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (int i = 0; i < FILMS; i++) {
+            storage.createFilm(new Film(0L, "Фильм", "Описание", LocalDate.of(2000, 1, 1), 100, new HashSet<>()));
+        }
+        Path directory = Files.createTempDirectory("wal-benchmark");
+        WriteAheadLog journal = null;
+        if (policy != null) {
+            journal = new WriteAheadLog(directory, policy, Duration.ofMillis(50));
+            journal.open(0);
+            storage.setJournal(journal);
+        }
+
+        AtomicLong userIds = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < likesPerThread; i++) {
+                        long userId = userIds.incrementAndGet();
+                        storage.addLike(userId % FILMS + 1, userId);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - started;
+
+        if (journal != null) {
+            storage.setJournal(StorageJournal.NOOP);
+            journal.close();
+        }
+        long total = (long) threads * likesPerThread;
+        System.out.printf("%-20s %,12.0f лайков/с (%d потоков)%n", name, total / (elapsed / 1e9), threads);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Сравнение удерживаемой памяти на один лайк: HashSet<Long> против LongHashSet.
+// Запуск после mvn -Pbenchmark test-compile:
+//     java -cp target/classes:target/test-classes ru.yandex.practicum.filmorate.benchmark.LikeSetMemoryBenchmark
+public class LikeSetMemoryBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int LIKES_PER_FILM = 200;
+
+    public static void main(String[] args) {
+        measure("HashSet<Long>", HashSet::new);
+        measure("LongHashSet", LongHashSet::new);
+        measure("HashSet<Long>", HashSet::new);
+        measure("LongHashSet", LongHashSet::new);
+    }
+
+    private static void measure(String name, Supplier<Set<Long>> factory) {
+        long before = usedHeap();
+        Object[] sets = new Object[FILMS];
+        long userId = 1_000;
+        for (int i = 0; i < FILMS; i++) {
+            Set<Long> likes = factory.get();
+            for (int j = 0; j < LIKES_PER_FILM; j++) {
+                likes.add(userId++);
+            }
+            sets[i] = likes;
+        }
+        long after = usedHeap();
+        double perLike = (double) (after - before) / ((long) FILMS * LIKES_PER_FILM);
+        System.out.printf("%-14s %,d лайков: %.1f байт на лайк%n", name, (long) FILMS * LIKES_PER_FILM, perLike);
+        if (sets[FILMS - 1] == null) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FeedProperties;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCacheProperties;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Пропускная способность горячих запросов (контроллер → сервис → хранилище) при разных настройках логов:
+// debug-sync — прежний уровень DEBUG с синхронной записью, info-sync — уровень по умолчанию,
+// info-async — профиль prod. Вывод уходит в пустой поток, так что замеряются форматирование
+// и кодирование сообщений, а не запись в консоль: на реальном терминале разница больше
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int LIKERS = 64;
+    private static final AtomicLong NEXT_LIKER = new AtomicLong();
+
+    @Param({"debug-sync", "info-sync", "info-async"})
+    public String logging;
+
+    private LoggerContext loggerContext;
+    private FilmController filmController;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+        Logger appLogger = loggerContext.getLogger("ru.yandex.practicum.filmorate");
+        appLogger.setLevel(ch.qos.logback.classic.Level.WARN);
+
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < LIKERS; i++) {
+            userStorage.createUser(BenchmarkData.user());
+        }
+        FilmService filmService = new FilmService(BenchmarkData.films(FILMS, 50), userStorage,
+                new PopularFilmsCache(new PopularFilmsCacheProperties(), new SimpleMeterRegistry()),
+                new FeedService(userStorage, new FeedProperties(), new SimpleMeterRegistry()),
+                new TrendingFilms(), new SimpleMeterRegistry());
+        filmController = new FilmController(filmService, new ObjectMapper());
+
+        Logger root = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(ch.qos.logback.classic.Level.INFO);
+        root.addAppender(appender(logging.endsWith("async")));
+        appLogger.setLevel(logging.startsWith("debug") ? ch.qos.logback.classic.Level.DEBUG
+                : ch.qos.logback.classic.Level.INFO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loggerContext.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class Liker {
+        long userId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            userId = 1 + NEXT_LIKER.getAndIncrement() % LIKERS;
+        }
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmController.getFilmById(1 + ThreadLocalRandom.current().nextLong(FILMS));
+    }
+
+    @Benchmark
+    public List<Film> popularFilms() {
+        return filmController.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public void addAndRemoveLike(Liker liker) {
+        likeAndUnlike(liker.userId);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addAndRemoveLikeContended(Liker liker) {
+        likeAndUnlike(liker.userId);
+    }
+
+    private void likeAndUnlike(long userId) {
+        long filmId = 1 + ThreadLocalRandom.current().nextLong(FILMS);
+        filmController.addLike(filmId, userId);
+        filmController.removeLike(filmId, userId);
+    }
+
+    // Те же шаблон и очередь, что у консольного аппендера Spring Boot и ASYNC_CONSOLE из logback-spring.xml
+    private Appender<ILoggingEvent> appender(boolean async) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(loggerContext);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+        if (!async) {
+            return output;
+        }
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(loggerContext);
+        asyncAppender.setQueueSize(8192);
+        asyncAppender.setNeverBlock(true);
+        asyncAppender.addAppender(output);
+        asyncAppender.start();
+        return asyncAppender;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.service.FriendRecommendationCache;
+import ru.yandex.practicum.filmorate.service.RecommendationProperties;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Рекомендации друзей для случайного пользователя: расчёт без кэша на равномерном графе и на графе
+// со «знаменитостями», где без ограничения обхода один запрос просматривал бы миллионы связей
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class RecommendationBenchmark {
+    @Param({"100000", "1000000"})
+    public int users;
+
+    @Param({"uniform", "power-law"})
+    public String graph;
+
+    private InMemoryUserStorage userStorage;
+    private RecommendationService recommendationService;
+    private RecommendationProperties properties;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userStorage = graph.equals("uniform") ? BenchmarkData.users(users, 20)
+                : BenchmarkData.powerLawUsers(users, 20);
+        properties = new RecommendationProperties();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        recommendationService = new RecommendationService(userStorage, new InMemoryFilmStorage(),
+                new FriendRecommendationCache(properties, registry), properties, registry);
+    }
+
+    @Benchmark
+    public Map<Long, Integer> recommendFriends() {
+        return userStorage.recommendFriends(randomUser(), properties.getMaxResults(), properties.getMaxFanOut());
+    }
+
+    // Самые связанные узлы графа — первые ID: для power-law это худший случай обхода
+    @Benchmark
+    public Map<Long, Integer> recommendFriendsForHub() {
+        return userStorage.recommendFriends(1 + ThreadLocalRandom.current().nextInt(10), properties.getMaxResults(),
+                properties.getMaxFanOut());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<FriendRecommendation> recommendFriendsCachedContended() {
+        return recommendationService.recommendFriends(randomUser(), 10);
+    }
+
+    private long randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.journal.SnapshotStore;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Время до первого ответа после старта: импорт всего состояния из JSON против отображения снимка в память.
+// Запуск после mvn -Pbenchmark test-compile: java -cp target/classes:target/test-classes:<зависимости> \
+//     ru.yandex.practicum.filmorate.benchmark.SnapshotStartupBenchmark [фильмов] [лайков на фильм]
+public class SnapshotStartupBenchmark {
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    public static void main(String[] args) throws Exception {
+        int filmCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int likesPerFilm = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int userCount = filmCount / 2;
+
+        Random random = new Random(42);
+        List<Film> films = new ArrayList<>(filmCount);
+        for (long id = 1; id <= filmCount; id++) {
+            LongHashSet likes = new LongHashSet();
+            for (int i = 0; i < likesPerFilm; i++) {
+                likes.add(1 + random.nextInt(userCount));
+            }
+            films.add(new Film(id, "Фильм " + id, "Описание фильма " + id, LocalDate.of(2000, 1, 1), 120, likes));
+        }
+        List<User> users = new ArrayList<>(userCount);
+        for (long id = 1; id <= userCount; id++) {
+            LongHashSet friends = new LongHashSet();
+            for (int i = 0; i < 10; i++) {
+                friends.add(1 + random.nextInt(userCount));
+            }
+            users.add(new User(id, "user" + id + "@mail.ru", "user" + id, "Имя", LocalDate.of(1990, 1, 1), friends));
+        }
+
+        Path directory = Files.createTempDirectory("snapshot-benchmark");
+        Path filmsJson = directory.resolve("films.json");
+        Path usersJson = directory.resolve("users.json");
+        MAPPER.writeValue(filmsJson.toFile(), films);
+        MAPPER.writeValue(usersJson.toFile(), users);
+        SnapshotStore snapshots = new SnapshotStore(directory);
+        snapshots.write(1, films::forEach, users::forEach);
+        System.out.printf("Фильмов %,d, пользователей %,d; JSON %,d КБ, снимок %,d КБ%n", filmCount, userCount,
+                (Files.size(filmsJson) + Files.size(usersJson)) / 1024,
+                Files.size(directory.resolve(String.format("snapshot-%020d.bin", 1))) / 1024);
+        films = null;
+        users = null;
+
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("Прогон %d%n", round + 1);
+            jsonStartup(filmsJson, usersJson);
+            mappedStartup(snapshots);
+        }
+    }
+
+    private static void jsonStartup(Path filmsJson, Path usersJson) throws Exception {
+        long started = System.nanoTime();
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        MAPPER.<List<Film>>readValue(filmsJson.toFile(), new TypeReference<>() {
+        }).forEach(filmStorage::restoreFilm);
+        MAPPER.<List<User>>readValue(usersJson.toFile(), new TypeReference<>() {
+        }).forEach(userStorage::restoreUser);
+        firstRequest("JSON-импорт", started, filmStorage);
+    }
+
+    private static void mappedStartup(SnapshotStore snapshots) {
+        long started = System.nanoTime();
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        MappedSnapshot snapshot = snapshots.openLatest().orElseThrow();
+        filmStorage.attachSnapshot(snapshot);
+        userStorage.attachSnapshot(snapshot);
+        firstRequest("mmap-снимок", started, filmStorage);
+
+        long materializeStarted = System.nanoTime();
+        int total = filmStorage.getAllFilms().size();
+        System.out.printf("  %-14s полная загрузка %,d фильмов ещё за %,d мс%n", "", total,
+                (System.nanoTime() - materializeStarted) / 1_000_000);
+    }
+
+    private static void firstRequest(String name, long started, InMemoryFilmStorage filmStorage) {
+        long ready = System.nanoTime();
+        List<Film> popular = filmStorage.getPopularFilms(10);
+        long answered = System.nanoTime();
+        System.out.printf("  %-14s старт %,6d мс, первый запрос популярных %,6d мкс (лидер %d)%n", name,
+                (ready - started) / 1_000_000, (answered - ready) / 1_000, popular.get(0).getId());
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Чтение по ID и создание в in-memory хранилищах. Создание растит хранилище в ходе прогона,
+// поэтому его результат — среднее по размерам от entities до entities + число вызовов
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int entities;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = BenchmarkData.films(entities, 10);
+        userStorage = BenchmarkData.users(entities, 10);
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilmById(randomId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Film getFilmByIdContended() {
+        return filmStorage.getFilmById(randomId());
+    }
+
+    @Benchmark
+    public User getUserById() {
+        return userStorage.getUserById(randomId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public User getUserByIdContended() {
+        return userStorage.getUserById(randomId());
+    }
+
+    @Benchmark
+    public Film createFilm() {
+        return filmStorage.createFilm(BenchmarkData.film());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Film createFilmContended() {
+        return filmStorage.createFilm(BenchmarkData.film());
+    }
+
+    @Benchmark
+    public User createUser() {
+        return userStorage.createUser(BenchmarkData.user());
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(entities);
+    }
+}
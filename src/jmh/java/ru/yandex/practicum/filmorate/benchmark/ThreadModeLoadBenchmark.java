@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Нагрузка на HTTP API при 1k–10k одновременных клиентов: пропускная способность и p99 на пуле потоков Tomcat
+// против виртуальных потоков. Приложение поднимается в этом же процессе с журналом fsync=always, чтобы лайки
+// ждали диск, как хранилище с вводом-выводом. Смесь запросов: 70% фильм по ID, 10% популярные, 20% лайк и снятие.
+// Запуск после mvn -Pbenchmark test-compile (Java 21, ulimit -n не меньше 2 × клиентов):
+//     java -cp target/classes:target/test-classes:<зависимости> \
+//     ru.yandex.practicum.filmorate.benchmark.ThreadModeLoadBenchmark [platform|virtual|both] [клиенты через запятую] [секунд]
+public class ThreadModeLoadBenchmark {
+    private static final int FILMS = 1_000;
+    // у каждого клиента свой пользователь, иначе одновременные лайки одного фильма конфликтуют
+    private static final int USERS = 10_000;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    public static void main(String[] args) throws Exception {
+        String modes = args.length > 0 ? args[0] : "both";
+        int[] clientCounts = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 2_500, 5_000, 10_000};
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 15);
+
+        if (!modes.equals("virtual")) {
+            run(false, clientCounts, duration);
+        }
+        if (!modes.equals("platform")) {
+            run(true, clientCounts, duration);
+        }
+    }
+
+    private static void run(boolean virtual, int[] clientCounts, Duration duration) throws Exception {
+        // аргументы командной строки, а не properties(): их не перекроет application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--server.tomcat.max-connections=20000",
+                "--server.tomcat.accept-count=10000",
+                "--filmorate.journal.enabled=true",
+                "--filmorate.journal.directory=" + Files.createTempDirectory("load-benchmark"),
+                "--filmorate.journal.fsync=always",
+                "--logging.level.ru.yandex.practicum.filmorate=WARN")) {
+            seed(context);
+            URI base = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+            String mode = virtual ? "virtual" : "platform";
+            for (int clients : clientCounts) {
+                load(base, clients, WARMUP);
+                Result result = load(base, clients, duration);
+                System.out.printf("%-8s клиентов=%-6d запросов/с=%-9.0f p50=%-8.2f мс p99=%-8.2f мс ошибок=%d%n",
+                        mode, clients, result.throughput(), result.p50(), result.p99(), result.errors());
+            }
+        }
+    }
+
+    private static void seed(ConfigurableApplicationContext context) {
+        UserService userService = context.getBean(UserService.class);
+        FilmService filmService = context.getBean(FilmService.class);
+        for (int i = 0; i < USERS; i++) {
+            userService.createUser(new User(0L, "user" + i + "@mail.ru", "user" + i, "Имя",
+                    LocalDate.of(1990, 1, 1), new HashSet<>()));
+        }
+        for (int i = 0; i < FILMS; i++) {
+            filmService.createFilm(new Film(0L, "Фильм " + i, "Описание", LocalDate.of(2000, 1, 1), 100,
+                    new HashSet<>()));
+        }
+    }
+
+    private static Result load(URI base, int clients, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Recorder>> futures = new ArrayList<>(clients);
+        // HTTP/1.1 явно: с попыткой перехода на HTTP/2 (h2c) клиент открывал около десяти соединений
+        // на каждого клиента и исчерпывал дескрипторы уже при 1k
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(executor)
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .build()) {
+            for (int i = 0; i < clients; i++) {
+                long userId = i % USERS + 1;
+                futures.add(executor.submit(() -> client(http, base, userId, deadline)));
+            }
+            Recorder total = new Recorder();
+            for (Future<Recorder> future : futures) {
+                total.add(future.get());
+            }
+            return total.result(duration);
+        }
+    }
+
+    private static Recorder client(HttpClient http, URI base, long userId, long deadline) throws InterruptedException {
+        Recorder recorder = new Recorder();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            long filmId = 1 + random.nextInt(FILMS);
+            int operation = random.nextInt(10);
+            if (operation < 7) {
+                send(http, recorder, "GET", base.resolve("/films/" + filmId));
+            } else if (operation < 8) {
+                send(http, recorder, "GET", base.resolve("/films/popular?count=10"));
+            } else {
+                URI like = base.resolve("/films/" + filmId + "/like/" + userId);
+                send(http, recorder, "PUT", like);
+                send(http, recorder, "DELETE", like);
+            }
+        }
+        return recorder;
+    }
+
+    private static void send(HttpClient http, Recorder recorder, String method, URI uri) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(60))
+                .build();
+        long started = System.nanoTime();
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() < 400) {
+                recorder.record(System.nanoTime() - started);
+            } else {
+                recorder.errors++;
+            }
+        } catch (IOException e) {
+            recorder.errors++;
+        }
+    }
+
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        void add(Recorder other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        Result result(Duration duration) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new Result(count / (duration.toNanos() / 1e9), percentile(sorted, 0.50),
+                    percentile(sorted, 0.99), errors);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+        }
+    }
+
+    private record Result(double throughput, double p50, double p99, long errors) {
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Счётчики трендов при потоке лайков: лайк обновляет три окна, чтение рейтинга не зависит от числа фильмов.
+// Сдвиг корзин идёт в фоновом потоке и в замер не попадает
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TrendingBenchmark {
+    private static final int PREFILLED_LIKES = 1_000_000;
+    private static final int TOP = 10;
+
+    @Param({"100000"})
+    public int films;
+
+    private TrendingFilms trendingFilms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        trendingFilms = new TrendingFilms();
+        for (int i = 0; i < PREFILLED_LIKES; i++) {
+            trendingFilms.likeAdded(randomFilm());
+        }
+    }
+
+    @Benchmark
+    public void like() {
+        trendingFilms.likeAdded(randomFilm());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void likeContended() {
+        trendingFilms.likeAdded(randomFilm());
+    }
+
+    @Benchmark
+    public List<Long> readTop() {
+        return trendingFilms.top(TrendingWindow.DAY, TOP);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<Long> readTopContended() {
+        return trendingFilms.top(TrendingWindow.DAY, TOP);
+    }
+
+    // Квадрат равномерного числа даёт длинный хвост: первые ID лайкают намного чаще
+    private long randomFilm() {
+        double uniform = ThreadLocalRandom.current().nextDouble();
+        return 1 + (long) (uniform * uniform * films);
+    }
+}
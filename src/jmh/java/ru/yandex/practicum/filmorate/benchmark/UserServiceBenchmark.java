@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedProperties;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.FriendRecommendationCache;
+import ru.yandex.practicum.filmorate.service.RecommendationProperties;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Друзья и общие друзья случайных пользователей (~20 друзей у каждого): в один поток и под конкуренцией
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InMemoryUserStorage userStorage = BenchmarkData.users(users, 20);
+        userService = new UserService(userStorage,
+                new FriendRecommendationCache(new RecommendationProperties(), registry),
+                new FeedService(userStorage, new FeedProperties(), registry), registry);
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return userService.getFriends(randomUser());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<User> getFriendsContended() {
+        return userService.getFriends(randomUser());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        return userService.getCommonFriends(randomUser(), randomUser());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<User> getCommonFriendsContended() {
+        return userService.getCommonFriends(randomUser(), randomUser());
+    }
+
+    private long randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
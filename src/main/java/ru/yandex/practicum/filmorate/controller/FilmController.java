@@ -1,14 +1,28 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmRangeCursor;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.time.LocalDate;
 import java.util.*;
 
 @Slf4j
@@ -16,60 +30,120 @@ import java.util.*;
 @RequestMapping("/films")
 @Validated
 public class FilmController {
+    static final int MAX_BATCH_SIZE = 10_000;
+    static final int MAX_QUERY_LENGTH = 200;
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
+    // Без after и limit возвращает весь список, иначе — страницу с курсором следующей в заголовках.
+    // С диапазонами даты релиза или длительности — страницу подходящих фильмов по возрастанию даты
+    // (или длительности, если дата не задана); курсор такой выборки составной: "значение:ID"
     @GetMapping
-    public List<Film> getAllFilms() {
-        log.info("Запрошен список фильмов");
-        return filmService.getAllFilms();
+    public ResponseEntity<List<Film>> getAllFilms(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) @Positive @Max(PageResponse.MAX_LIMIT) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedTo,
+            @RequestParam(required = false) @Positive Long minDuration,
+            @RequestParam(required = false) @Positive Long maxDuration) {
+        FilmFilter filter = new FilmFilter(releasedFrom, releasedTo, minDuration, maxDuration);
+        int pageSize = limit != null ? limit : PageResponse.DEFAULT_LIMIT;
+        if (!filter.isEmpty()) {
+            return PageResponse.of(filmService.findFilms(filter,
+                    after == null ? null : FilmRangeCursor.parse(after), pageSize));
+        }
+        if (after == null && limit == null) {
+            log.info("Запрошен список фильмов");
+            return ResponseEntity.ok(filmService.getAllFilms());
+        }
+        long afterId = parseAfterId(after);
+        if (log.isDebugEnabled()) {
+            log.debug("Запрошена страница фильмов после ID {} размером {}", afterId, pageSize);
+        }
+        return PageResponse.of(filmService.getFilmsPage(afterId, pageSize));
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonResponse.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.info("Запрошена выгрузка фильмов");
+        return NdjsonResponse.of(objectMapper, filmService::exportFilms);
     }
 
     @GetMapping("/{id}")
     public Film getFilmById(@PathVariable @Positive long id) {
-        Film film = filmService.getFilmById(id);
-        log.info("Найден фильм: ID={}, Название={}", film.getId(), film.getName());
-        return film;
+        return filmService.getFilmById(id);
     }
 
     @GetMapping("/popular")
     public List<Film> getPopularFilms(
             @RequestParam(defaultValue = "10") @Positive int count) {
-        log.info("Запрос {} самых популярных фильмов", count);
         return filmService.getPopularFilms(count);
     }
 
+    // Слова ищутся в названии и описании целиком и как начало слова; выше — совпадения в названии и фильмы с лайками
+    @GetMapping("/search")
+    public List<Film> searchFilms(
+            @RequestParam @NotBlank @Size(max = MAX_QUERY_LENGTH) String q,
+            @RequestParam(defaultValue = "10") @Positive @Max(PageResponse.MAX_LIMIT) int limit) {
+        return filmService.searchFilms(q, limit);
+    }
+
+    // window — 1h, 24h или 7d; в окне учитываются лайки, поставленные и снятые с момента запуска приложения
+    @GetMapping("/trending")
+    public List<Film> getTrendingFilms(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "10") @Positive @Max(PageResponse.MAX_LIMIT) int count) {
+        return filmService.getTrendingFilms(TrendingWindow.fromParam(window), count);
+    }
+
     @PostMapping
     public Film createFilm(@Valid @RequestBody Film film) {
-        log.info("Запрос на создание фильма: {}", film.getName());
-        Film createdFilm = filmService.createFilm(film);
-        log.info("Фильм успешно создан. ID: {}, Название: {}", createdFilm.getId(), createdFilm.getName());
-        return createdFilm;
+        log.debug("Запрос на создание фильма: {}", film.getName());
+        return filmService.createFilm(film);
     }
 
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
-        log.info("Запрос на обновление фильма ID={}", film.getId());
-        Film updateFilm = filmService.updateFilm(film);
-        log.info("Фильм обновлен: ID={}", film.getId());
-        return updateFilm;
+        log.debug("Запрос на обновление фильма ID={}", film.getId());
+        return filmService.updateFilm(film);
     }
 
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable @Positive long id, @PathVariable @Positive long userId) {
-        log.info("Запрос на добавление лайка фильму {} от пользователя {}", id, userId);
         filmService.addLike(id, userId);
-        log.info("Лайк добавлен: пользователь {} фильму {}", userId, id);
+    }
+
+    @PostMapping("/likes:batch")
+    public List<BatchItemResult> applyLikeChanges(
+            @RequestBody @Size(min = 1, max = MAX_BATCH_SIZE) List<LikeChange> changes) {
+        return filmService.applyLikeChanges(changes);
     }
 
     @DeleteMapping("/{id}/like/{userId}")
     public void removeLike(@PathVariable @Positive long id, @PathVariable @Positive long userId) {
-        log.info("Запрос на удаление лайка фильму {} от пользователя {}", id, userId);
         filmService.removeLike(id, userId);
-        log.info("Лайк удален: пользователь {} фильму {}", userId, id);
+    }
+
+    // Без фильтров after — ID, а не составной курсор, поэтому проверяется здесь, а не аннотацией
+    private static long parseAfterId(String after) {
+        if (after == null) {
+            return 0;
+        }
+        try {
+            long afterId = Long.parseLong(after);
+            if (afterId >= 0) {
+                return afterId;
+            }
+        } catch (NumberFormatException e) {
+            // ниже общий ответ о неверном курсоре
+        }
+        throw new ValidationException("Параметр after должен быть неотрицательным ID");
     }
 }
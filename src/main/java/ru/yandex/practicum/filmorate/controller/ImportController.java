@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.ImportFormat;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Тело запроса не собирается в память целиком: сервис читает его из потока блоками
+@Slf4j
+@RestController
+public class ImportController {
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping(value = "/films/import", consumes = {ImportFormat.NDJSON_MEDIA_TYPE, ImportFormat.CSV_MEDIA_TYPE})
+    public ImportReport importFilms(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body)
+            throws IOException {
+        log.info("Запрошен импорт фильмов");
+        return importService.importFilms(body, ImportFormat.fromContentType(contentType));
+    }
+
+    @PostMapping(value = "/users/import", consumes = {ImportFormat.NDJSON_MEDIA_TYPE, ImportFormat.CSV_MEDIA_TYPE})
+    public ImportReport importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body)
+            throws IOException {
+        log.info("Запрошен импорт пользователей");
+        return importService.importUsers(body, ImportFormat.fromContentType(contentType));
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.ImportFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+// Выгрузка в формате NDJSON: объекты по одному сериализуются прямо в поток ответа, без общего списка.
+// Запись в сокет блокирующая, поэтому медленный клиент притормаживает обход хранилища
+final class NdjsonResponse {
+    static final String MEDIA_TYPE = ImportFormat.NDJSON_MEDIA_TYPE;
+
+    private NdjsonResponse() {
+    }
+
+    // StreamingResponseBody пишется мимо конвертеров, поэтому produces у маппинга заголовок не выставляет
+    static <T> ResponseEntity<StreamingResponseBody> of(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                source.accept(item -> {
+                    try {
+                        writer.writeValue(generator, item);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MEDIA_TYPE))
+                .body(body);
+    }
+}
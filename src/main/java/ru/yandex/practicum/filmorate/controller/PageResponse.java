@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangePage;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.util.List;
+
+// Страница списка: тело — обычный JSON-массив, курсор следующей страницы — в заголовках Link и X-Next-Cursor
+final class PageResponse {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private PageResponse() {
+    }
+
+    static <T> ResponseEntity<List<T>> of(Page<T> page) {
+        return of(page.getItems(), page.getNextCursor());
+    }
+
+    static ResponseEntity<List<Film>> of(FilmRangePage page) {
+        return of(page.getItems(), page.getNextCursor());
+    }
+
+    private static <T> ResponseEntity<List<T>> of(List<T> items, Object nextCursor) {
+        if (nextCursor == null) {
+            return ResponseEntity.ok(items);
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", nextCursor)
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .header(NEXT_CURSOR_HEADER, String.valueOf(nextCursor))
+                .body(items);
+    }
+}
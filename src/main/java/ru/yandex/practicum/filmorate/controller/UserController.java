@@ -1,12 +1,27 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRecommendation;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.FriendshipChange;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.*;
@@ -16,66 +31,129 @@ import java.util.*;
 @RequestMapping("/users")
 @Validated
 public class UserController {
+    // не больше filmorate.recommendations.max-results, с которым считаются рекомендации друзей
+    static final int MAX_RECOMMENDATIONS = 100;
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final RecommendationService recommendationService;
+    private final FeedService feedService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService,
+                          RecommendationService recommendationService, FeedService feedService,
+                          ObjectMapper objectMapper) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.feedService = feedService;
+        this.recommendationService = recommendationService;
+        this.objectMapper = objectMapper;
     }
 
+    // Без after и limit возвращает весь список, иначе — страницу с курсором следующей в заголовках
     @GetMapping
-    public List<User> getAllUsers() {
-        log.info("Запрошен список пользователей");
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getAllUsers(
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam(required = false) @Positive @Max(PageResponse.MAX_LIMIT) Integer limit) {
+        if (after == 0 && limit == null) {
+            log.info("Запрошен список пользователей");
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        int pageSize = limit != null ? limit : PageResponse.DEFAULT_LIMIT;
+        if (log.isDebugEnabled()) {
+            log.debug("Запрошена страница пользователей после ID {} размером {}", after, pageSize);
+        }
+        return PageResponse.of(userService.getUsersPage(after, pageSize));
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonResponse.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("Запрошена выгрузка пользователей");
+        return NdjsonResponse.of(objectMapper, userService::exportUsers);
     }
 
     @GetMapping("/{id}")
     public User getUserById(@PathVariable @Positive long id) {
-        log.info("Запрошен пользователь с ID: {}", id);
-        User user = userService.getUserById(id);
-        log.debug("Найден пользователь: ID={}, Email={}", user.getId(), user.getEmail());
-        return user;
+        return userService.getUserById(id);
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable @Positive long id) {
-        log.info("Запрос друзей пользователя с ID: {}", id);
-        return userService.getFriends(id);
+    public ResponseEntity<List<User>> getFriends(
+            @PathVariable @Positive long id,
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam(required = false) @Positive @Max(PageResponse.MAX_LIMIT) Integer limit) {
+        if (after == 0 && limit == null) {
+            return ResponseEntity.ok(userService.getFriends(id));
+        }
+        int pageSize = limit != null ? limit : PageResponse.DEFAULT_LIMIT;
+        return PageResponse.of(userService.getFriendsPage(id, after, pageSize));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable @Positive long id, @PathVariable @Positive long otherId) {
-        log.info("Запрос общих друзей пользователя {} c пользователем {}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
 
+    // Лайки пользователя всегда отдаются страницами: у активных пользователей их десятки тысяч
+    @GetMapping("/{id}/likes")
+    public ResponseEntity<List<Film>> getLikedFilms(
+            @PathVariable @Positive long id,
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam(required = false) @Positive @Max(PageResponse.MAX_LIMIT) Integer limit) {
+        int pageSize = limit != null ? limit : PageResponse.DEFAULT_LIMIT;
+        return PageResponse.of(filmService.getLikedFilmsPage(id, after, pageSize));
+    }
+
+    // Лента от новых событий к старым; курсор — ID последнего события страницы
+    @GetMapping("/{id}/feed")
+    public ResponseEntity<List<FeedEvent>> getFeed(
+            @PathVariable @Positive long id,
+            @RequestParam(defaultValue = "0") @PositiveOrZero long after,
+            @RequestParam(required = false) @Positive @Max(PageResponse.MAX_LIMIT) Integer limit) {
+        int pageSize = limit != null ? limit : PageResponse.DEFAULT_LIMIT;
+        return PageResponse.of(feedService.getFeed(id, after, pageSize));
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<FriendRecommendation> getFriendRecommendations(
+            @PathVariable @Positive long id,
+            @RequestParam(defaultValue = "10") @Positive @Max(MAX_RECOMMENDATIONS) int limit) {
+        return recommendationService.recommendFriends(id, limit);
+    }
+
+    @GetMapping("/{id}/recommended-films")
+    public List<FilmRecommendation> getFilmRecommendations(
+            @PathVariable @Positive long id,
+            @RequestParam(defaultValue = "10") @Positive @Max(MAX_RECOMMENDATIONS) int limit) {
+        return recommendationService.recommendFilms(id, limit);
+    }
+
     @PostMapping
     public User createUser(@Valid @RequestBody User user) {
-        log.info("Запрос на создание пользователя с Email {}", user.getEmail());
-        User createdUser = userService.createUser(user);
-        log.info("Создан новый пользователь: ID={}, Email={}", createdUser.getId(), createdUser.getEmail());
-        return createdUser;
+        log.debug("Запрос на создание пользователя с Email {}", user.getEmail());
+        return userService.createUser(user);
     }
 
     @PutMapping
     public User updateUser(@Valid @RequestBody User user) {
-        log.info("Запрос на обновление пользователя c ID {}", user.getId());
-        User updateUser = userService.updateUser(user);
-        log.info("Обновлен пользователь: ID={}", user.getId());
-        return updateUser;
+        log.debug("Запрос на обновление пользователя c ID {}", user.getId());
+        return userService.updateUser(user);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable @Positive long id, @PathVariable @Positive long friendId) {
-        log.info("Запрос на добавление в друзья. Пользователь {} добавляет {}", id, friendId);
         userService.addFriend(id, friendId);
-        log.info("Пользователи {} и {} теперь друзья", id, friendId);
+    }
+
+    @PostMapping("/friends:batch")
+    public List<BatchItemResult> applyFriendshipChanges(
+            @RequestBody @Size(min = 1, max = FilmController.MAX_BATCH_SIZE) List<FriendshipChange> changes) {
+        return userService.applyFriendshipChanges(changes);
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
     public void removeFriend(@PathVariable @Positive long id, @PathVariable @Positive long friendId) {
-        log.info("Запрос от пользователя с ID {} на удаление из друзей пользователя с ID {}", id, friendId);
         userService.removeFriend(id, friendId);
-        log.info("Дружба прекращена: пользователь {} и {}", id, friendId);
     }
 }
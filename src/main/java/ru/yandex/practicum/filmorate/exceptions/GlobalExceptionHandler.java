@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.exceptions;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
@@ -9,15 +11,27 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
 @Slf4j
 public class GlobalExceptionHandler {
+    private static final String ERRORS_COUNTER = "filmorate.errors";
+
+    private final MeterRegistry meterRegistry;
+    // счётчик на каждый класс исключения создаётся один раз, дальше только increment
+    private final Map<Class<?>, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationException(final ValidationException e) {
+        countError(e);
         log.error("Ошибка валидации: {}", e.getMessage());
         return new ErrorResponse("Ошибка валидации", e.getMessage());
     }
@@ -25,6 +39,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleNotFoundException(final NotFoundException e) {
+        countError(e);
         log.error("Объект не найден: {}", e.getMessage());
         return new ErrorResponse("Объект не найден", e.getMessage());
     }
@@ -32,6 +47,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleThrowable(final Throwable e) {
+        countError(e);
         log.error("Внутренняя ошибка сервера: {}", e.getMessage(), e);
         return new ErrorResponse("Внутренняя ошибка сервера", e.getMessage());
     }
@@ -42,6 +58,7 @@ public class GlobalExceptionHandler {
         String errorMessage = e.getBindingResult().getAllErrors().stream()
                 .map(DefaultMessageSourceResolvable::getDefaultMessage)
                 .collect(Collectors.joining(", "));
+        countError(e);
         log.error("Ошибка валидации параметров: {}", errorMessage);
         return new ErrorResponse("Ошибка валидации параметров", errorMessage);
     }
@@ -52,7 +69,23 @@ public class GlobalExceptionHandler {
         String errorMessage = e.getConstraintViolations().stream()
                 .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
                 .collect(Collectors.joining(", "));
+        countError(e);
         log.error("Ошибка валидации параметров: {}", errorMessage);
         return new ErrorResponse("Ошибка валидации параметров", errorMessage);
     }
+
+    // Регистрация не внутри computeIfAbsent: реестр берёт свой монитор, а под блокировкой корзины
+    // ConcurrentHashMap ожидание монитора закрепило бы виртуальный поток за носителем. Повторная
+    // регистрация из двух потоков безопасна — реестр вернёт тот же счётчик
+    private void countError(Throwable e) {
+        Counter counter = errorCounters.get(e.getClass());
+        if (counter == null) {
+            counter = Counter.builder(ERRORS_COUNTER)
+                    .description("Исключения, обработанные GlobalExceptionHandler")
+                    .tag("exception", e.getClass().getSimpleName())
+                    .register(meterRegistry);
+            errorCounters.putIfAbsent(e.getClass(), counter);
+        }
+        counter.increment();
+    }
 }
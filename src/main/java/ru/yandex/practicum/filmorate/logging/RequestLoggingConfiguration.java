@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.core.Conditions;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+// Заменяет условие Logbook по умолчанию (логировать всё): запросы выбираются случайно с долей sampleRate.
+// Пока логгер Logbook не на TRACE, условие не вызывается и тела не буферизуются вовсе
+@Configuration
+public class RequestLoggingConfiguration {
+
+    @Bean
+    public Predicate<HttpRequest> requestCondition(RequestLoggingProperties properties) {
+        List<Predicate<HttpRequest>> excluded = properties.getExcludedPaths().stream()
+                .map(Conditions::<HttpRequest>requestTo)
+                .toList();
+        Predicate<HttpRequest> notExcluded = Conditions.exclude(excluded);
+        double sampleRate = properties.getSampleRate();
+        if (sampleRate >= 1) {
+            return notExcluded;
+        }
+        return request -> ThreadLocalRandom.current().nextDouble() < sampleRate && notExcluded.test(request);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.request-logging")
+public class RequestLoggingProperties {
+    // доля запросов, которые Logbook пишет вместе с телами, когда логгер org.zalando.logbook включён на TRACE
+    private double sampleRate = 0.01;
+    // выгрузки, импорт и actuator не логируются никогда: Logbook буферизует тело целиком
+    private List<String> excludedPaths = List.of("/actuator/**", "/films/export", "/users/export",
+            "/films/import", "/users/import");
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Результат одного элемента пакетного запроса; ответ содержит результаты в порядке элементов запроса
+@Data
+@AllArgsConstructor
+public class BatchItemResult {
+    private BatchItemStatus status;
+    // причина, если изменение не применено
+    private String message;
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum BatchItemStatus {
+    // изменение применено
+    APPLIED,
+    // лайк или дружба уже были в нужном состоянии
+    UNCHANGED,
+    NOT_FOUND,
+    INVALID
+}
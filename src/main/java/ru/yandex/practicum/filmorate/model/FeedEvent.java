@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Событие ленты: userId поставил лайк фильму entityId (LIKE) или добавил в друзья пользователя entityId (FRIEND).
+// eventId растёт со временем и служит курсором страниц, timestamp — миллисекунды эпохи
+@Data
+@AllArgsConstructor
+public class FeedEvent {
+    private long eventId;
+    private long timestamp;
+    private long userId;
+    private EventType eventType;
+    private long entityId;
+}
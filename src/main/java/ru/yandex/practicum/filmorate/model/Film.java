@@ -1,18 +1,19 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.validation.constraints.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Film {
+    public static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
 
     private long id;
 
@@ -29,5 +30,24 @@ public class Film {
     @Positive(message = "Продолжительность должна быть положительной")
     private long duration;
 
-    private Set<Long> likes = new HashSet<>();
+    @JsonDeserialize(as = LongHashSet.class)
+    private Set<Long> likes = new LongHashSet();
+
+    public Film(long id, String name, String description, LocalDate releaseDate, long duration, Set<Long> likes) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.releaseDate = releaseDate;
+        this.duration = duration;
+        this.likes = idSet(likes);
+    }
+
+    public void setLikes(Set<Long> likes) {
+        this.likes = idSet(likes);
+    }
+
+    // Версии из хранилища в памяти несут неизменяемое множество: его не копируем в изменяемое
+    private static Set<Long> idSet(Set<Long> ids) {
+        return ids instanceof PersistentLongSet ? ids : LongHashSet.from(ids);
+    }
 }
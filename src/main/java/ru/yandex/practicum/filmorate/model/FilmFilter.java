@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Диапазоны для GET /films: null — граница не задана, заданные границы включаются
+@Data
+@AllArgsConstructor
+public class FilmFilter {
+    private LocalDate releasedFrom;
+    private LocalDate releasedTo;
+    private Long minDuration;
+    private Long maxDuration;
+
+    public boolean isEmpty() {
+        return releasedFrom == null && releasedTo == null && minDuration == null && maxDuration == null;
+    }
+
+    public boolean hasReleaseRange() {
+        return releasedFrom != null || releasedTo != null;
+    }
+
+    // Значение, по которому упорядочена выборка: день эпохи даты релиза, если её диапазон задан, иначе длительность
+    public long rangeValue(Film film) {
+        return hasReleaseRange() ? film.getReleaseDate().toEpochDay() : film.getDuration();
+    }
+
+    public boolean matches(Film film) {
+        LocalDate released = film.getReleaseDate();
+        return (releasedFrom == null || released != null && !released.isBefore(releasedFrom))
+                && (releasedTo == null || released != null && !released.isAfter(releasedTo))
+                && (minDuration == null || film.getDuration() >= minDuration)
+                && (maxDuration == null || film.getDuration() <= maxDuration);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+
+// Курсор выборки по диапазону: значение поля, по которому она упорядочена (день эпохи даты релиза или
+// длительность), и ID последнего фильма страницы. В параметре after записывается как "значение:ID"
+@Data
+@AllArgsConstructor
+public class FilmRangeCursor {
+    private long value;
+    private long filmId;
+
+    public static FilmRangeCursor parse(String cursor) {
+        int separator = cursor.indexOf(':');
+        if (separator > 0) {
+            try {
+                return new FilmRangeCursor(Long.parseLong(cursor.substring(0, separator)),
+                        Long.parseLong(cursor.substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                // ниже общий ответ о неверном курсоре
+            }
+        }
+        throw new ValidationException("Курсор выборки по фильтру должен иметь вид значение:ID");
+    }
+
+    @Override
+    public String toString() {
+        return value + ":" + filmId;
+    }
+}
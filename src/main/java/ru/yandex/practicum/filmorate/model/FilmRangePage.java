@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Страница выборки по диапазону: то же, что Page, но курсор составной — фильмы с одинаковой датой
+// или длительностью идут по ID
+@Data
+@AllArgsConstructor
+public class FilmRangePage {
+    private List<Film> items;
+    // позиция последнего фильма страницы, если дальше есть ещё фильмы, иначе null
+    private FilmRangeCursor nextCursor;
+
+    public static FilmRangePage of(List<Film> fetched, int limit, FilmFilter filter) {
+        if (fetched.size() <= limit) {
+            return new FilmRangePage(fetched, null);
+        }
+        List<Film> items = fetched.subList(0, limit);
+        Film last = items.get(limit - 1);
+        return new FilmRangePage(items, new FilmRangeCursor(filter.rangeValue(last), last.getId()));
+    }
+}
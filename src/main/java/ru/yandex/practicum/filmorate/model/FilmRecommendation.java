@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Элемент ответа /users/{id}/recommended-films: фильм и его вес — сумма общих лайков с похожими пользователями,
+// которые его лайкнули
+@Data
+@AllArgsConstructor
+public class FilmRecommendation {
+    private Film film;
+    private int score;
+}
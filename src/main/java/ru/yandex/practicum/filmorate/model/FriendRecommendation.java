@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Элемент ответа /users/{id}/recommendations: друг друзей и число общих с ним друзей
+@Data
+@AllArgsConstructor
+public class FriendRecommendation {
+    private User user;
+    private int mutualFriends;
+}
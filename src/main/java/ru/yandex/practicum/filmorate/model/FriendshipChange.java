@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Элемент пакетного запроса /users/friends:batch; action по умолчанию — добавить в друзья
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendshipChange {
+    private long userId;
+    private long friendId;
+    private ChangeAction action = ChangeAction.ADD;
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Строка импорта, которая не была сохранена; строки нумеруются с 1, заголовок CSV тоже считается
+@Data
+@AllArgsConstructor
+public class ImportError {
+    private long line;
+    private String message;
+}
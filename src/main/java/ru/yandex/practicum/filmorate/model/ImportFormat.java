@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+
+import java.util.Locale;
+
+public enum ImportFormat {
+    // по объекту JSON на строку, как в выгрузке /films/export и /users/export
+    NDJSON,
+    // первая строка — заголовок с именами полей, пустая ячейка — поле не задано
+    CSV;
+
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    public static final String CSV_MEDIA_TYPE = "text/csv";
+
+    public static ImportFormat fromContentType(String contentType) {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith(NDJSON_MEDIA_TYPE)) {
+            return NDJSON;
+        }
+        if (type.startsWith(CSV_MEDIA_TYPE)) {
+            return CSV;
+        }
+        throw new ValidationException("Импорт принимает " + NDJSON_MEDIA_TYPE + " или " + CSV_MEDIA_TYPE);
+    }
+}
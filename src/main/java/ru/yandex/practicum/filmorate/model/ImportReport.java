@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Итог импорта: errors содержит не больше первой тысячи ошибок, failed — их общее число
+@Data
+@AllArgsConstructor
+public class ImportReport {
+    private long total;
+    private long imported;
+    private long failed;
+    private List<ImportError> errors;
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Элемент пакетного запроса /films/likes:batch; action по умолчанию — поставить лайк
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeChange {
+    private long filmId;
+    private long userId;
+    private ChangeAction action = ChangeAction.ADD;
+}
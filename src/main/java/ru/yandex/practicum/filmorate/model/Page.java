@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+@Data
+@AllArgsConstructor
+public class Page<T> {
+    private List<T> items;
+    // ID последнего элемента страницы, если дальше есть ещё данные, иначе null
+    private Long nextCursor;
+
+    // Хранилище выбирает на один элемент больше limit: лишний элемент означает, что у страницы есть продолжение
+    public static <T> Page<T> of(List<T> fetched, int limit, ToLongFunction<T> id) {
+        if (fetched.size() <= limit) {
+            return new Page<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new Page<>(items, id.applyAsLong(items.get(limit - 1)));
+    }
+}
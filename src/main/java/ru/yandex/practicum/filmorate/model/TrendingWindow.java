@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.model;
+
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+
+import java.time.Duration;
+
+// Окна /films/trending. Окно — кольцо из buckets корзин длиной bucket, последняя корзина заполняется сейчас,
+// поэтому граница окна точна до одной корзины
+public enum TrendingWindow {
+    HOUR("1h", Duration.ofMinutes(5), 12),
+    DAY("24h", Duration.ofHours(1), 24),
+    WEEK("7d", Duration.ofHours(1), 168);
+
+    private final String param;
+    private final Duration bucket;
+    private final int buckets;
+
+    TrendingWindow(String param, Duration bucket, int buckets) {
+        this.param = param;
+        this.bucket = bucket;
+        this.buckets = buckets;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public Duration getBucket() {
+        return bucket;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public static TrendingWindow fromParam(String param) {
+        for (TrendingWindow window : values()) {
+            if (window.param.equals(param)) {
+                return window;
+            }
+        }
+        throw new ValidationException("Окно должно быть одним из: 1h, 24h, 7d");
+    }
+}
@@ -1,17 +1,17 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.validation.constraints.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class User {
 
     private long id;
@@ -30,5 +30,24 @@ public class User {
     @Past(message = "Дата рождения не может быть в будущем")
     private LocalDate birthday;
 
-    private Set<Long> friends = new HashSet<>();
+    @JsonDeserialize(as = LongHashSet.class)
+    private Set<Long> friends = new LongHashSet();
+
+    public User(long id, String email, String login, String name, LocalDate birthday, Set<Long> friends) {
+        this.id = id;
+        this.email = email;
+        this.login = login;
+        this.name = name;
+        this.birthday = birthday;
+        this.friends = idSet(friends);
+    }
+
+    public void setFriends(Set<Long> friends) {
+        this.friends = idSet(friends);
+    }
+
+    // Версии из хранилища в памяти несут неизменяемое множество: его не копируем в изменяемое
+    private static Set<Long> idSet(Set<Long> ids) {
+        return ids instanceof PersistentLongSet ? ids : LongHashSet.from(ids);
+    }
 }
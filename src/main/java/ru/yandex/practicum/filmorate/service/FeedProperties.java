@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "filmorate.feed")
+public class FeedProperties {
+    // сколько последних событий хранится во входящих каждого пользователя и в журнале каждого автора
+    @Positive
+    private int inboxSize = 200;
+    // у кого друзей больше, тот не раскладывает события по входящим: друзья читают его журнал сами
+    private int celebrityThreshold = 1_000;
+}
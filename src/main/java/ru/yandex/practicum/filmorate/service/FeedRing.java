@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Кольцевой буфер последних событий по возрастанию eventId: при переполнении вытесняется самое старое.
+// Массив растёт до capacity по мере заполнения, чтобы неактивные пользователи не занимали полный буфер
+final class FeedRing {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final int capacity;
+    // ReentrantLock, а не synchronized: ожидающий виртуальный поток не закрепляет поток-носитель
+    private final ReentrantLock lock = new ReentrantLock();
+    private FeedEvent[] events;
+    // индекс самого старого события в массиве
+    private int head;
+    private int size;
+
+    FeedRing(int capacity) {
+        this.capacity = capacity;
+        this.events = new FeedEvent[Math.min(capacity, INITIAL_CAPACITY)];
+    }
+
+    // События публикуются почти по порядку eventId, поэтому новое обычно просто дописывается в конец,
+    // а опоздавшее сдвигается на одну-две позиции
+    void add(FeedEvent event) {
+        lock.lock();
+        try {
+            if (size == capacity) {
+                if (event.getEventId() < get(0).getEventId()) {
+                    return;
+                }
+                events[head] = null;
+                head = (head + 1) % events.length;
+                size--;
+            } else if (size == events.length) {
+                grow();
+            }
+            int position = size;
+            while (position > 0 && get(position - 1).getEventId() > event.getEventId()) {
+                set(position, get(position - 1));
+                position--;
+            }
+            set(position, event);
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Добавляет в result не больше limit событий с eventId меньше before, от новых к старым
+    void collectBefore(long before, int limit, List<FeedEvent> result) {
+        lock.lock();
+        try {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (get(middle).getEventId() < before) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for (int i = low - 1, taken = 0; i >= 0 && taken < limit; i--, taken++) {
+                result.add(get(i));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FeedEvent get(int index) {
+        return events[(head + index) % events.length];
+    }
+
+    private void set(int index, FeedEvent event) {
+        events[(head + index) % events.length] = event;
+    }
+
+    private void grow() {
+        FeedEvent[] grown = new FeedEvent[Math.min(capacity, events.length * 2)];
+        for (int i = 0; i < size; i++) {
+            grown[i] = get(i);
+        }
+        events = grown;
+        head = 0;
+    }
+}
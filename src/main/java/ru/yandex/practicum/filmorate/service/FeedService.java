@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Лента событий друзей. Каждое событие пишется в журнал автора, а затем раскладывается во входящие его друзей,
+// поэтому чтение ленты — это страница своих входящих, без обхода друзей и их лайков. Исключение — «знаменитости»
+// с числом друзей больше celebrityThreshold: их события остаются только в журнале, а друзья подмешивают его
+// при чтении. События живут в памяти и после перезапуска не восстанавливаются
+@Service
+@Slf4j
+public class FeedService {
+    private static final Comparator<FeedEvent> NEWEST_FIRST =
+            Comparator.comparingLong(FeedEvent::getEventId).reversed();
+
+    private final UserStorage userStorage;
+    private final FeedProperties properties;
+    private final AtomicLong nextEventId = new AtomicLong(1);
+    private final Map<Long, FeedRing> inboxes = new ConcurrentHashMap<>();
+    private final Map<Long, FeedRing> journals = new ConcurrentHashMap<>();
+    // статус знаменитости не снимается: иначе её события, лежащие только в журнале, пропали бы из лент
+    private final Set<Long> celebrities = ConcurrentHashMap.newKeySet();
+    // для каждого читателя — его друзья-знаменитости, чьи журналы подмешиваются к входящим
+    private final Map<Long, Set<Long>> celebrityFriends = new ConcurrentHashMap<>();
+    private final Timer publishTimer;
+    private final Timer feedTimer;
+
+    @Autowired
+    public FeedService(UserStorage userStorage, FeedProperties properties, MeterRegistry meterRegistry) {
+        this.userStorage = userStorage;
+        this.properties = properties;
+        this.publishTimer = Timer.builder("filmorate.service")
+                .description("Время операций сервисов")
+                .tag("operation", "publishEvent")
+                .register(meterRegistry);
+        this.feedTimer = Timer.builder("filmorate.service")
+                .description("Время операций сервисов")
+                .tag("operation", "getFeed")
+                .register(meterRegistry);
+    }
+
+    public void likeAdded(long userId, long filmId) {
+        publish(userId, EventType.LIKE, filmId);
+    }
+
+    public void friendAdded(long userId, long friendId) {
+        if (celebrities.contains(userId)) {
+            celebrityFriendsOf(friendId).add(userId);
+        }
+        if (celebrities.contains(friendId)) {
+            celebrityFriendsOf(userId).add(friendId);
+        }
+        publish(userId, EventType.FRIEND, friendId);
+    }
+
+    public void friendRemoved(long userId, long friendId) {
+        Set<Long> ofUser = celebrityFriends.get(userId);
+        if (ofUser != null) {
+            ofUser.remove(friendId);
+        }
+        Set<Long> ofFriend = celebrityFriends.get(friendId);
+        if (ofFriend != null) {
+            ofFriend.remove(userId);
+        }
+    }
+
+    // Страница ленты от новых событий к старым: after — eventId последнего события предыдущей страницы.
+    // Стоимость — размер страницы на каждый источник: входящие и журналы друзей-знаменитостей
+    public Page<FeedEvent> getFeed(long userId, long after, int limit) {
+        long started = System.nanoTime();
+        try {
+            if (userStorage.getExistingIds(List.of(userId)).isEmpty()) {
+                throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+            }
+            long before = after > 0 ? after : Long.MAX_VALUE;
+            List<FeedEvent> events = new ArrayList<>(limit + 1);
+            FeedRing inbox = inboxes.get(userId);
+            if (inbox != null) {
+                inbox.collectBefore(before, limit + 1, events);
+            }
+            Set<Long> followed = celebrityFriends.getOrDefault(userId, Set.of());
+            if (!followed.isEmpty()) {
+                for (Long celebrity : followed) {
+                    FeedRing journal = journals.get(celebrity);
+                    if (journal != null) {
+                        journal.collectBefore(before, limit + 1, events);
+                    }
+                }
+                events = newestDistinct(events, limit + 1);
+            }
+            return Page.of(events, limit, FeedEvent::getEventId);
+        } finally {
+            feedTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void clear() {
+        inboxes.clear();
+        journals.clear();
+        celebrities.clear();
+        celebrityFriends.clear();
+    }
+
+    private void publish(long userId, EventType type, long entityId) {
+        long started = System.nanoTime();
+        try {
+            FeedEvent event = new FeedEvent(nextEventId.getAndIncrement(), System.currentTimeMillis(), userId,
+                    type, entityId);
+            ring(journals, userId).add(event);
+            if (celebrities.contains(userId)) {
+                return;
+            }
+            long[] friendIds = userStorage.getFriendIds(userId, properties.getCelebrityThreshold() + 1);
+            if (friendIds.length > properties.getCelebrityThreshold()) {
+                promote(userId);
+                return;
+            }
+            for (long friendId : friendIds) {
+                ring(inboxes, friendId).add(event);
+            }
+        } finally {
+            publishTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Флаг ставится до чтения списка друзей: дружба, добавленная позже, попадёт в celebrityFriends
+    // через friendAdded, добавленная раньше — через этот список
+    private void promote(long userId) {
+        if (!celebrities.add(userId)) {
+            return;
+        }
+        long[] friendIds = userStorage.getFriendIds(userId, Integer.MAX_VALUE);
+        for (long friendId : friendIds) {
+            celebrityFriendsOf(friendId).add(userId);
+        }
+        log.info("Пользователь {} с {} друзьями переведён на чтение ленты из журнала", userId, friendIds.length);
+    }
+
+    private Set<Long> celebrityFriendsOf(long userId) {
+        return celebrityFriends.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet());
+    }
+
+    private FeedRing ring(Map<Long, FeedRing> rings, long userId) {
+        return rings.computeIfAbsent(userId, id -> new FeedRing(properties.getInboxSize()));
+    }
+
+    // Событие знаменитости, опубликованное до её перевода, лежит и во входящих, и в журнале
+    private static List<FeedEvent> newestDistinct(List<FeedEvent> events, int limit) {
+        events.sort(NEWEST_FIRST);
+        List<FeedEvent> result = new ArrayList<>(limit);
+        for (FeedEvent event : events) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (result.isEmpty() || result.get(result.size() - 1).getEventId() != event.getEventId()) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+}
@@ -1,28 +1,80 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.ChangeAction;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmRangeCursor;
+import ru.yandex.practicum.filmorate.model.FilmRangePage;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-
+    private final PopularFilmsCache popularFilmsCache;
+    private final FeedService feedService;
+    private final TrendingFilms trendingFilms;
+    private final Counter likesAdded;
+    private final Counter likesRemoved;
+    private final Timer popularTimer;
+    private final Timer trendingTimer;
 
     @Autowired
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, PopularFilmsCache popularFilmsCache,
+                       FeedService feedService, TrendingFilms trendingFilms, MeterRegistry meterRegistry) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.popularFilmsCache = popularFilmsCache;
+        this.feedService = feedService;
+        this.trendingFilms = trendingFilms;
+        this.likesAdded = Counter.builder("filmorate.likes.changes")
+                .description("Поставленные и снятые лайки")
+                .tag("action", "add")
+                .register(meterRegistry);
+        this.likesRemoved = Counter.builder("filmorate.likes.changes")
+                .description("Поставленные и снятые лайки")
+                .tag("action", "remove")
+                .register(meterRegistry);
+        // время ответа /films/popular вместе с кэшем; время самого рейтинга — в filmorate.storage
+        this.popularTimer = Timer.builder("filmorate.service")
+                .description("Время операций сервисов")
+                .tag("operation", "getPopularFilms")
+                .register(meterRegistry);
+        this.trendingTimer = Timer.builder("filmorate.service")
+                .description("Время операций сервисов")
+                .tag("operation", "getTrendingFilms")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.films", filmStorage, FilmStorage::countFilms)
+                .description("Количество фильмов")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.likes", filmStorage, FilmStorage::countLikes)
+                .description("Количество лайков")
+                .register(meterRegistry);
     }
 
     public List<Film> getAllFilms() {
@@ -31,14 +83,55 @@ public class FilmService {
         return films;
     }
 
+    public Page<Film> getFilmsPage(long after, int limit) {
+        Page<Film> page = Page.of(filmStorage.getFilmsPage(after, limit + 1), limit, Film::getId);
+        if (log.isDebugEnabled()) {
+            log.debug("Страница фильмов после ID {}: {} шт., следующий курсор {}", after, page.getItems().size(),
+                    page.getNextCursor());
+        }
+        return page;
+    }
+
+    public FilmRangePage findFilms(FilmFilter filter, FilmRangeCursor after, int limit) {
+        FilmRangePage page = FilmRangePage.of(filmStorage.findFilms(filter, after, limit + 1), limit, filter);
+        if (log.isDebugEnabled()) {
+            log.debug("По фильтру {} после {} найдено {} фильмов, следующий курсор {}", filter, after,
+                    page.getItems().size(), page.getNextCursor());
+        }
+        return page;
+    }
+
+    public Page<Film> getLikedFilmsPage(long userId, long after, int limit) {
+        userStorage.getUserById(userId);
+        Page<Film> page = Page.of(filmStorage.getLikedFilmsPage(userId, after, limit + 1), limit, Film::getId);
+        if (log.isDebugEnabled()) {
+            log.debug("Страница лайков пользователя {} после ID {}: {} шт.", userId, after, page.getItems().size());
+        }
+        return page;
+    }
+
+    public List<Film> searchFilms(String query, int limit) {
+        List<Film> films = filmStorage.searchFilms(query, limit);
+        if (log.isDebugEnabled()) {
+            log.debug("По запросу \"{}\" найдено {} фильмов", query, films.size());
+        }
+        return films;
+    }
+
+    public void exportFilms(Consumer<Film> action) {
+        log.debug("Начало выгрузки фильмов");
+        filmStorage.forEachFilm(action);
+        log.debug("Выгрузка фильмов завершена");
+    }
+
     public Film getFilmById(long id) {
-        log.debug("Получение фильма по ID: {}", id);
         return filmStorage.getFilmById(id);
     }
 
     public Film createFilm(Film film) {
         log.debug("Начало создания фильма: {}", film.getName());
         Film createdFilm = filmStorage.createFilm(film);
+        popularFilmsCache.invalidate();
         log.info("Успешно создан фильм ID: {}, Название: {}", createdFilm.getId(), createdFilm.getName());
         return createdFilm;
     }
@@ -46,34 +139,100 @@ public class FilmService {
     public Film updateFilm(Film film) {
         log.debug("Запрос на обновление фильма с ID: {}", film.getId());
         Film updatedFilm = filmStorage.updateFilm(film);
+        popularFilmsCache.invalidate();
         log.info("Фильм обновлён: ID={}, Название={}", updatedFilm.getId(), updatedFilm.getName());
         return updatedFilm;
     }
 
     public void addLike(long filmId, long userId) {
-        log.debug("Обработка лайка. Фильм: {}, Пользователь: {}", filmId, userId);
-        Film film = filmStorage.getFilmById(filmId);
         userStorage.getUserById(userId);
 
-        if (film.getLikes().contains(userId)) {
+        if (!filmStorage.addLike(filmId, userId)) {
             log.warn("Пользователь {} уже ставил лайк фильму {}", userId, filmId);
             throw new ValidationException("Пользователь уже поставил лайк этому фильму");
         }
-
-        film.getLikes().add(userId);
-        filmStorage.updateFilm(film);
-        log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
+        popularFilmsCache.invalidate();
+        feedService.likeAdded(userId, filmId);
+        trendingFilms.likeAdded(filmId);
+        likesAdded.increment();
+        if (log.isDebugEnabled()) {
+            log.debug("Пользователь {} поставил лайк фильму {}", userId, filmId);
+        }
     }
 
     public void removeLike(long filmId, long userId) {
-        Film film = filmStorage.getFilmById(filmId);
-
-        if (!film.getLikes().remove(userId)) {
+        if (!filmStorage.removeLike(filmId, userId)) {
             throw new NotFoundException("Пользователь не ставил лайк этому фильму");
         }
+        popularFilmsCache.invalidate();
+        trendingFilms.likeRemoved(filmId);
+        likesRemoved.increment();
+        if (log.isDebugEnabled()) {
+            log.debug("Пользователь {} удалил лайк с фильма {}", userId, filmId);
+        }
+    }
+
+    // Элементы проверяются разом (пользователи — одним запросом к хранилищу), корректные применяются одним вызовом;
+    // ответ содержит результат каждого элемента в порядке запроса
+    public List<BatchItemResult> applyLikeChanges(List<LikeChange> changes) {
+        BatchItemResult[] results = new BatchItemResult[changes.size()];
+        List<Long> userIds = new ArrayList<>(changes.size());
+        for (LikeChange change : changes) {
+            if (change != null) {
+                userIds.add(change.getUserId());
+            }
+        }
+        Set<Long> existingUsers = userStorage.getExistingIds(userIds);
+
+        List<LikeChange> valid = new ArrayList<>(changes.size());
+        int[] positions = new int[changes.size()];
+        for (int i = 0; i < changes.size(); i++) {
+            LikeChange change = changes.get(i);
+            // null в массиве запроса — такой же некорректный элемент, как и без полей
+            if (change == null || change.getFilmId() <= 0 || change.getUserId() <= 0 || change.getAction() == null) {
+                results[i] = new BatchItemResult(BatchItemStatus.INVALID,
+                        "Нужны положительные filmId и userId и action ADD или REMOVE");
+            } else if (!existingUsers.contains(change.getUserId())) {
+                results[i] = new BatchItemResult(BatchItemStatus.NOT_FOUND,
+                        "Пользователь с id=" + change.getUserId() + " не найден");
+            } else {
+                positions[valid.size()] = i;
+                valid.add(change);
+            }
+        }
 
-        filmStorage.updateFilm(film);
-        log.info("Пользователь {} удалил лайк с фильма {}", userId, filmId);
+        List<BatchItemStatus> statuses = valid.isEmpty() ? List.of() : filmStorage.applyLikeChanges(valid);
+        long added = 0;
+        long removed = 0;
+        for (int j = 0; j < statuses.size(); j++) {
+            LikeChange change = valid.get(j);
+            boolean adding = change.getAction() == ChangeAction.ADD;
+            String message = switch (statuses.get(j)) {
+                case APPLIED -> null;
+                case NOT_FOUND -> "Фильм с id=" + change.getFilmId() + " не найден";
+                case UNCHANGED -> adding ? "Пользователь уже поставил лайк этому фильму"
+                        : "Пользователь не ставил лайк этому фильму";
+                case INVALID -> "Некорректное изменение";
+            };
+            if (statuses.get(j) == BatchItemStatus.APPLIED) {
+                if (adding) {
+                    feedService.likeAdded(change.getUserId(), change.getFilmId());
+                    trendingFilms.likeAdded(change.getFilmId());
+                    added++;
+                } else {
+                    trendingFilms.likeRemoved(change.getFilmId());
+                    removed++;
+                }
+            }
+            results[positions[j]] = new BatchItemResult(statuses.get(j), message);
+        }
+        if (added + removed > 0) {
+            popularFilmsCache.invalidate();
+        }
+        likesAdded.increment(added);
+        likesRemoved.increment(removed);
+        log.info("Пакет лайков: {} изменений, поставлено {}, снято {}", changes.size(), added, removed);
+        return Arrays.asList(results);
     }
 
     public List<Film> getPopularFilms(int count) {
@@ -82,12 +241,35 @@ public class FilmService {
             count = 10;
         }
 
-        List<Film> result = filmStorage.getAllFilms().stream()
-                .sorted((f1, f2) -> Integer.compare(f2.getLikes().size(), f1.getLikes().size()))
-                .limit(count)
-                .collect(Collectors.toList());
-
-        log.info("Возвращено {} популярных фильмов (запрошено: {})", result.size(), count);
+        long started = System.nanoTime();
+        List<Film> result = popularFilmsCache.get(count, filmStorage::getPopularFilms);
+        popularTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (log.isDebugEnabled()) {
+            log.debug("Возвращено {} популярных фильмов (запрошено: {})", result.size(), count);
+        }
         return result;
     }
+
+    // Рейтинг окна берётся готовым из счётчиков, из хранилища читаются только count фильмов
+    public List<Film> getTrendingFilms(TrendingWindow window, int count) {
+        long started = System.nanoTime();
+        try {
+            List<Long> ids = trendingFilms.top(window, count);
+            Map<Long, Film> films = new HashMap<>();
+            filmStorage.getFilmsByIds(ids).forEach(film -> films.put(film.getId(), film));
+            List<Film> result = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                Film film = films.get(id);
+                if (film != null) {
+                    result.add(film);
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Возвращено {} фильмов в тренде за {}", result.size(), window.getParam());
+            }
+            return result;
+        } finally {
+            trendingTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
 }
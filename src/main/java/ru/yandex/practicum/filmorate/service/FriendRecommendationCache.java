@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+// Кэш рекомендаций друзей по ID пользователя: хранятся только ID и числа общих друзей, сами пользователи
+// читаются из хранилища при каждом ответе. Изменение дружбы сбрасывает записи обоих пользователей
+@Component
+public class FriendRecommendationCache {
+    private final Cache<Long, Map<Long, Integer>> cache;
+    // растёт при каждом сбросе: расчёт, во время которого что-то сбрасывалось, в кэше не остаётся
+    private final AtomicLong generation = new AtomicLong();
+
+    public FriendRecommendationCache(RecommendationProperties properties, MeterRegistry meterRegistry) {
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build(), "friendRecommendations");
+    }
+
+    // Как и в PopularFilmsCache, без compute-загрузчика: сброс не ждёт идущего расчёта
+    public Map<Long, Integer> get(long userId, LongFunction<Map<Long, Integer>> loader) {
+        Map<Long, Integer> cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long started = generation.get();
+        Map<Long, Integer> loaded = loader.apply(userId);
+        cache.put(userId, loaded);
+        if (generation.get() != started) {
+            cache.invalidate(userId);
+        }
+        return loaded;
+    }
+
+    public void invalidate(long userId, long friendId) {
+        generation.incrementAndGet();
+        cache.invalidate(userId);
+        cache.invalidate(friendId);
+    }
+
+    public void invalidate(long userId) {
+        generation.incrementAndGet();
+        cache.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,246 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportError;
+import ru.yandex.practicum.filmorate.model.ImportFormat;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+// Импорт читает тело построчно блоками по BLOCK_SIZE: строки блока разбираются и проверяются параллельно,
+// корректные записи сохраняются одним вызовом хранилища. Ошибочная строка попадает в отчёт и импорт не прерывает.
+// ID и списки лайков или друзей из файла не переносятся: записи создаются заново
+@Service
+@Slf4j
+public class ImportService {
+    static final int BLOCK_SIZE = 1_000;
+    static final int MAX_REPORTED_ERRORS = 1_000;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final PopularFilmsCache popularFilmsCache;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Autowired
+    public ImportService(FilmStorage filmStorage, UserStorage userStorage, PopularFilmsCache popularFilmsCache,
+                         ObjectMapper objectMapper, Validator validator) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.popularFilmsCache = popularFilmsCache;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    public ImportReport importFilms(InputStream body, ImportFormat format) throws IOException {
+        ImportReport report = run(body, format, Film.class, this::prepareFilm, filmStorage::createFilms);
+        if (report.getImported() > 0) {
+            popularFilmsCache.invalidate();
+        }
+        log.info("Импорт фильмов: строк {}, добавлено {}, с ошибками {}", report.getTotal(), report.getImported(),
+                report.getFailed());
+        return report;
+    }
+
+    public ImportReport importUsers(InputStream body, ImportFormat format) throws IOException {
+        ImportReport report = run(body, format, User.class, this::prepareUser, userStorage::createUsers);
+        log.info("Импорт пользователей: строк {}, добавлено {}, с ошибками {}", report.getTotal(),
+                report.getImported(), report.getFailed());
+        return report;
+    }
+
+    // Возвращает текст ошибки или null, если фильм можно сохранять
+    private String prepareFilm(Film film) {
+        film.setId(0);
+        film.getLikes().clear();
+        String error = violations(film);
+        if (error == null && film.getReleaseDate().isBefore(Film.MIN_RELEASE_DATE)) {
+            error = "Дата релиза не может быть раньше 28 декабря 1895 года";
+        }
+        return error;
+    }
+
+    private String prepareUser(User user) {
+        user.setId(0);
+        user.getFriends().clear();
+        String error = violations(user);
+        if (error == null && (user.getName() == null || user.getName().isBlank())) {
+            user.setName(user.getLogin());
+        }
+        return error;
+    }
+
+    private String violations(Object record) {
+        List<String> messages = validator.validate(record).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .toList();
+        return messages.isEmpty() ? null : String.join(", ", messages);
+    }
+
+    private <T> ImportReport run(InputStream body, ImportFormat format, Class<T> type, Function<T, String> prepare,
+                                 UnaryOperator<List<T>> save) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Import<T> state = new Import<>(prepare, save);
+        List<String> lines = new ArrayList<>(BLOCK_SIZE);
+        long[] lineNumbers = new long[BLOCK_SIZE];
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (state.parser == null) {
+                state.parser = format == ImportFormat.NDJSON ? json -> objectMapper.readValue(json, type)
+                        : csvParser(line, type);
+                if (format == ImportFormat.CSV) {
+                    continue;
+                }
+            }
+            lineNumbers[lines.size()] = lineNumber;
+            lines.add(line);
+            if (lines.size() == BLOCK_SIZE) {
+                state.importBlock(lines, lineNumbers);
+                lines.clear();
+            }
+        }
+        if (!lines.isEmpty()) {
+            state.importBlock(lines, lineNumbers);
+        }
+        return new ImportReport(state.total, state.imported, state.failed, state.errors);
+    }
+
+    // Ячейки строки сопоставляются с именами полей из заголовка, дальше запись собирается тем же
+    // ObjectMapper, что и JSON: даты и числа приводятся из строк так же, как в теле запроса
+    private <T> LineParser<T> csvParser(String headerLine, Class<T> type) {
+        List<String> header = parseCsv(headerLine).stream().map(String::trim).toList();
+        return line -> {
+            List<String> cells = parseCsv(line);
+            if (cells.size() != header.size()) {
+                throw new IllegalArgumentException("Ожидалось полей: " + header.size() + ", получено: " + cells.size());
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                if (!cells.get(i).isEmpty()) {
+                    fields.put(header.get(i), cells.get(i));
+                }
+            }
+            return objectMapper.convertValue(fields, type);
+        };
+    }
+
+    // Поля через запятую, поле в двойных кавычках может содержать запятые и "" вместо кавычки.
+    // Перевод строки внутри поля не поддерживается: одна запись — одна строка
+    static List<String> parseCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    cell.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Незакрытая кавычка");
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    private static String describe(Exception e) {
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof JsonProcessingException)) {
+            cause = cause.getCause();
+        }
+        return cause != null ? ((JsonProcessingException) cause).getOriginalMessage() : e.getMessage();
+    }
+
+    @FunctionalInterface
+    private interface LineParser<T> {
+        T parse(String line) throws IOException;
+    }
+
+    private static final class Import<T> {
+        private final Function<T, String> prepare;
+        private final UnaryOperator<List<T>> save;
+        private final List<ImportError> errors = new ArrayList<>();
+        private LineParser<T> parser;
+        private long total;
+        private long imported;
+        private long failed;
+
+        private Import(Function<T, String> prepare, UnaryOperator<List<T>> save) {
+            this.prepare = prepare;
+            this.save = save;
+        }
+
+        private void importBlock(List<String> lines, long[] lineNumbers) {
+            List<T> records = new ArrayList<>(Collections.nCopies(lines.size(), null));
+            String[] problems = new String[lines.size()];
+            IntStream.range(0, lines.size()).parallel().forEach(i -> {
+                try {
+                    T record = parser.parse(lines.get(i));
+                    problems[i] = record == null ? "Пустая запись" : prepare.apply(record);
+                    records.set(i, record);
+                } catch (IOException | IllegalArgumentException e) {
+                    problems[i] = "Не удалось разобрать строку: " + describe(e);
+                }
+            });
+
+            List<T> valid = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                if (problems[i] == null) {
+                    valid.add(records.get(i));
+                    continue;
+                }
+                failed++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new ImportError(lineNumbers[i], problems[i]));
+                }
+            }
+            if (!valid.isEmpty()) {
+                save.apply(valid);
+            }
+            total += lines.size();
+            imported += valid.size();
+        }
+    }
+}
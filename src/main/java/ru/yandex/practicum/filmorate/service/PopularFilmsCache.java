@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+// Кэш ответов /films/popular по count. Вместо поиска затронутых ключей каждое изменение фильмов или лайков
+// увеличивает версию; запись, посчитанная на старой версии, отдаётся, только пока она моложе maxStaleness
+@Component
+public class PopularFilmsCache {
+    private final Cache<Integer, Entry> cache;
+    private final AtomicLong version = new AtomicLong();
+    private final long maxStalenessNanos;
+
+    public PopularFilmsCache(PopularFilmsCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build(), "popularFilms");
+        this.maxStalenessNanos = properties.getMaxStaleness().toNanos();
+    }
+
+    // Без compute-загрузчика: при промахе несколько потоков могут посчитать один ключ параллельно,
+    // зато никто не ждёт на блокировке кэша, пока другой считает рейтинг
+    public List<Film> get(int count, IntFunction<List<Film>> loader) {
+        long current = version.get();
+        Entry entry = cache.getIfPresent(count);
+        if (entry != null && (entry.version() == current
+                || maxStalenessNanos > 0 && System.nanoTime() - entry.loadedAt() <= maxStalenessNanos)) {
+            return entry.films();
+        }
+        List<Film> films = loader.apply(count);
+        // версия прочитана до расчёта: если во время расчёта что-то изменилось, запись сразу окажется устаревшей
+        cache.put(count, new Entry(current, System.nanoTime(), films));
+        return films;
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    private record Entry(long version, long loadedAt, List<Film> films) {
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.popular-cache")
+public class PopularFilmsCacheProperties {
+    private long maximumSize = 1000;
+    private Duration ttl = Duration.ofMinutes(5);
+    // сколько может жить ответ, посчитанный до последнего изменения лайков; 0 — только актуальные ответы
+    private Duration maxStaleness = Duration.ZERO;
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.recommendations")
+public class RecommendationProperties {
+    // сколько связей каждого узла просматривается при обходе; ограничивает расчёт для узлов-«знаменитостей»
+    private int maxFanOut = 500;
+    // сколько самых похожих по лайкам пользователей учитывается в рекомендациях фильмов
+    private int maxNeighbours = 50;
+    // рекомендации считаются один раз на это число и режутся под запрошенный limit
+    private int maxResults = 100;
+    private long maximumSize = 10_000;
+    // рекомендации пользователя сбрасываются при изменении его друзей; изменения у друзей видны не позже ttl
+    private Duration ttl = Duration.ofMinutes(5);
+}
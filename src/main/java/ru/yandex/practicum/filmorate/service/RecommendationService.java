@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRecommendation;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class RecommendationService {
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final FriendRecommendationCache friendRecommendationCache;
+    private final RecommendationProperties properties;
+    private final Timer friendsTimer;
+    private final Timer filmsTimer;
+
+    @Autowired
+    public RecommendationService(UserStorage userStorage, FilmStorage filmStorage,
+                                 FriendRecommendationCache friendRecommendationCache,
+                                 RecommendationProperties properties, MeterRegistry meterRegistry) {
+        this.userStorage = userStorage;
+        this.filmStorage = filmStorage;
+        this.friendRecommendationCache = friendRecommendationCache;
+        this.properties = properties;
+        this.friendsTimer = Timer.builder("filmorate.service")
+                .description("Время операций сервисов")
+                .tag("operation", "recommendFriends")
+                .register(meterRegistry);
+        this.filmsTimer = Timer.builder("filmorate.service")
+                .description("Время операций сервисов")
+                .tag("operation", "recommendFilms")
+                .register(meterRegistry);
+    }
+
+    // «Возможно, вы знакомы»: друзья друзей по убыванию числа общих друзей
+    public List<FriendRecommendation> recommendFriends(long userId, int limit) {
+        long started = System.nanoTime();
+        try {
+            Map<Long, Integer> ranking = friendRecommendationCache.get(userId, id ->
+                    userStorage.recommendFriends(id, properties.getMaxResults(), properties.getMaxFanOut()));
+            List<Long> ids = ranking.keySet().stream().limit(limit).toList();
+            Map<Long, User> users = new HashMap<>();
+            userStorage.getUsersByIds(ids).forEach(user -> users.put(user.getId(), user));
+
+            List<FriendRecommendation> result = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                User user = users.get(id);
+                if (user != null) {
+                    result.add(new FriendRecommendation(user, ranking.get(id)));
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Для пользователя {} найдено {} рекомендаций друзей", userId, result.size());
+            }
+            return result;
+        } finally {
+            friendsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Фильмы, которые лайкали пользователи с похожими вкусами. Не кэшируется: расчёт ограничен maxFanOut
+    // и maxNeighbours, а собственный лайк пользователя должен сразу убирать фильм из выдачи
+    public List<FilmRecommendation> recommendFilms(long userId, int limit) {
+        long started = System.nanoTime();
+        try {
+            userStorage.getUserById(userId);
+            Map<Long, Integer> ranking = filmStorage.recommendFilms(userId, limit, properties.getMaxFanOut(),
+                    properties.getMaxNeighbours());
+            Map<Long, Film> films = new HashMap<>();
+            filmStorage.getFilmsByIds(ranking.keySet()).forEach(film -> films.put(film.getId(), film));
+
+            List<FilmRecommendation> result = new ArrayList<>(ranking.size());
+            ranking.forEach((id, score) -> {
+                Film film = films.get(id);
+                if (film != null) {
+                    result.add(new FilmRecommendation(film, score));
+                }
+            });
+            if (log.isDebugEnabled()) {
+                log.debug("Для пользователя {} найдено {} рекомендаций фильмов", userId, result.size());
+            }
+            return result;
+        } finally {
+            filmsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+
+// Скользящее окно лайков: кольцо корзин «фильм → изменение числа лайков» и суммы по окну с рейтингом,
+// как в FilmPopularityIndex. Запросы пишут только в текущую корзину и суммы; сдвиг кольца и вычитание
+// выпавшей корзины делает один фоновый поток через rotate. Память — фильмы, лайкнутые в пределах окна
+final class TrendingCounters {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final Map<Long, Integer>[] buckets;
+    private volatile int current;
+    // снятие старого лайка уводит сумму в минус: такие фильмы хранятся, но в рейтинг не попадают,
+    // иначе при выпадении корзины со снятием фильм получил бы лайк, которого не было
+    private final Map<Long, Integer> totals = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks(64);
+
+    @SuppressWarnings("unchecked")
+    TrendingCounters(int bucketCount) {
+        buckets = new Map[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    void add(long filmId, int delta) {
+        Lock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            buckets[current].merge(filmId, delta, Integer::sum);
+            apply(filmId, delta);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Начинает новую корзину на месте самой старой и вычитает её из сумм
+    void rotate() {
+        int next = (current + 1) % buckets.length;
+        Map<Long, Integer> expired = buckets[next];
+        buckets[next] = new ConcurrentHashMap<>();
+        current = next;
+        expired.forEach((filmId, delta) -> {
+            if (delta != 0) {
+                Lock lock = locks.forId(filmId);
+                lock.lock();
+                try {
+                    apply(filmId, -delta);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+
+    int likes(long filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.likes();
+    }
+
+    List<Long> top(int count) {
+        List<Long> result = new ArrayList<>(Math.min(count, entries.size()));
+        for (Entry entry : ranking) {
+            if (result.size() == count) {
+                break;
+            }
+            if (entries.get(entry.filmId()) == entry) {
+                result.add(entry.filmId());
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ConcurrentHashMap<>();
+        }
+        totals.clear();
+        ranking.clear();
+        entries.clear();
+    }
+
+    // Вызывается под блокировкой фильма
+    private void apply(long filmId, int delta) {
+        Integer total = totals.merge(filmId, delta, (left, right) -> left + right == 0 ? null : left + right);
+        Entry previous = entries.get(filmId);
+        if (total == null || total <= 0) {
+            if (previous != null) {
+                entries.remove(filmId);
+                ranking.remove(previous);
+            }
+            return;
+        }
+        Entry entry = new Entry(filmId, total);
+        ranking.add(entry);
+        entries.put(filmId, entry);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+    }
+
+    private record Entry(long filmId, int likes) {
+    }
+}
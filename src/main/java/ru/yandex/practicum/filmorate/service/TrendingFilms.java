@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Лайки за последний час, сутки и неделю. Счётчики живут в памяти и считаются с момента запуска:
+// время лайков нигде не хранится, поэтому после перезапуска окна начинаются с нуля
+@Component
+@Slf4j
+public class TrendingFilms {
+    private static final long TICK_MILLIS = 1_000;
+
+    private final LongSupplier clock;
+    private final Map<TrendingWindow, TrendingCounters> counters = new EnumMap<>(TrendingWindow.class);
+    // номер текущей корзины каждого окна: время / длина корзины
+    private final Map<TrendingWindow, Long> epochs = new EnumMap<>(TrendingWindow.class);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trending-rollover");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public TrendingFilms() {
+        this(System::currentTimeMillis);
+    }
+
+    TrendingFilms(LongSupplier clock) {
+        this.clock = clock;
+        long now = clock.getAsLong();
+        for (TrendingWindow window : TrendingWindow.values()) {
+            counters.put(window, new TrendingCounters(window.getBuckets()));
+            epochs.put(window, now / window.getBucket().toMillis());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::advance, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public void likeAdded(long filmId) {
+        for (TrendingCounters windowCounters : counters.values()) {
+            windowCounters.add(filmId, 1);
+        }
+    }
+
+    public void likeRemoved(long filmId) {
+        for (TrendingCounters windowCounters : counters.values()) {
+            windowCounters.add(filmId, -1);
+        }
+    }
+
+    public List<Long> top(TrendingWindow window, int count) {
+        return counters.get(window).top(count);
+    }
+
+    public int likes(TrendingWindow window, long filmId) {
+        return counters.get(window).likes(filmId);
+    }
+
+    public void clear() {
+        counters.values().forEach(TrendingCounters::clear);
+    }
+
+    // Сдвигает окна, у которых началась новая корзина. Вызывается только фоновым потоком,
+    // поэтому запросы никогда не ждут вычитания выпавшей корзины
+    void advance() {
+        try {
+            long now = clock.getAsLong();
+            for (TrendingWindow window : TrendingWindow.values()) {
+                long epoch = now / window.getBucket().toMillis();
+                long behind = epoch - epochs.get(window);
+                if (behind <= 0) {
+                    continue;
+                }
+                TrendingCounters windowCounters = counters.get(window);
+                // после долгой паузы всё окно устарело: хватит одного полного оборота кольца
+                for (long i = 0; i < Math.min(behind, window.getBuckets()); i++) {
+                    windowCounters.rotate();
+                }
+                epochs.put(window, epoch);
+                if (log.isDebugEnabled()) {
+                    log.debug("Окно трендов {} сдвинуто на {} корзин", window.getParam(), behind);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось сдвинуть окна трендов: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,23 +1,62 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.ChangeAction;
+import ru.yandex.practicum.filmorate.model.FriendshipChange;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class UserService {
     private final UserStorage userStorage;
+    private final FriendRecommendationCache friendRecommendationCache;
+    private final FeedService feedService;
+    private final Counter friendsAdded;
+    private final Counter friendsRemoved;
+    private final Timer friendsTimer;
 
     @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, FriendRecommendationCache friendRecommendationCache,
+                       FeedService feedService, MeterRegistry meterRegistry) {
         this.userStorage = userStorage;
+        this.friendRecommendationCache = friendRecommendationCache;
+        this.feedService = feedService;
+        this.friendsAdded = Counter.builder("filmorate.friendships.changes")
+                .description("Добавления и удаления друзей")
+                .tag("action", "add")
+                .register(meterRegistry);
+        this.friendsRemoved = Counter.builder("filmorate.friendships.changes")
+                .description("Добавления и удаления друзей")
+                .tag("action", "remove")
+                .register(meterRegistry);
+        // список друзей собирается из двух обращений к хранилищу, поэтому замеряется целиком
+        this.friendsTimer = Timer.builder("filmorate.service")
+                .description("Время операций сервисов")
+                .tag("operation", "getFriends")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.users", userStorage, UserStorage::countUsers)
+                .description("Количество пользователей")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.friendships", userStorage, UserStorage::countFriendships)
+                .description("Количество пар друзей")
+                .register(meterRegistry);
     }
 
     public List<User> getAllUsers() {
@@ -26,8 +65,30 @@ public class UserService {
         return users;
     }
 
+    public Page<User> getUsersPage(long after, int limit) {
+        Page<User> page = Page.of(userStorage.getUsersPage(after, limit + 1), limit, User::getId);
+        if (log.isDebugEnabled()) {
+            log.debug("Страница пользователей после ID {}: {} шт., следующий курсор {}", after,
+                    page.getItems().size(), page.getNextCursor());
+        }
+        return page;
+    }
+
+    public Page<User> getFriendsPage(long userId, long after, int limit) {
+        Page<User> page = Page.of(userStorage.getFriendsPage(userId, after, limit + 1), limit, User::getId);
+        if (log.isDebugEnabled()) {
+            log.debug("Страница друзей пользователя {} после ID {}: {} шт.", userId, after, page.getItems().size());
+        }
+        return page;
+    }
+
+    public void exportUsers(Consumer<User> action) {
+        log.debug("Начало выгрузки пользователей");
+        userStorage.forEachUser(action);
+        log.debug("Выгрузка пользователей завершена");
+    }
+
     public User getUserById(long id) {
-        log.debug("Получение пользователя по ID: {}", id);
         return userStorage.getUserById(id);
     }
 
@@ -48,61 +109,112 @@ public class UserService {
             log.debug("Имя пользователя не указано при обновлении, используем логин: {}", user.getLogin());
             user.setName(user.getLogin());
         }
-        return userStorage.updateUser(user);
+        User updatedUser = userStorage.updateUser(user);
+        friendRecommendationCache.invalidate(updatedUser.getId());
+        log.info("Пользователь обновлён: ID={}", updatedUser.getId());
+        return updatedUser;
     }
 
     public void addFriend(long userId, long friendId) {
-        log.debug("Начало обработки добавления друга {} пользователю {}", friendId, userId);
         if (userId == friendId) {
             log.error("Попытка добавить самого себя в друзья: {}", userId);
             throw new ValidationException("Нельзя добавить самого себя в друзья");
         }
 
-        User user = userStorage.getUserById(userId);
-        User friend = userStorage.getUserById(friendId);
-
-        if (user.getFriends().contains(friendId)) {
+        if (!userStorage.addFriend(userId, friendId)) {
             log.warn("Попытка повторного добавления друга: пользователь {} уже имеет друга {}",
                     userId, friendId);
             throw new ValidationException("Пользователь уже в друзьях");
         }
-
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
-        userStorage.updateUser(user);
-        userStorage.updateUser(friend);
-        log.info("Установлена дружба между пользователями: {} и {}", userId, friendId);
+        friendRecommendationCache.invalidate(userId, friendId);
+        feedService.friendAdded(userId, friendId);
+        friendsAdded.increment();
+        if (log.isDebugEnabled()) {
+            log.debug("Установлена дружба между пользователями: {} и {}", userId, friendId);
+        }
     }
 
+    // Удаление несуществующей дружбы не ошибка, но и не событие: метрика, лента и кэш его не видят
     public void removeFriend(long userId, long friendId) {
-        User user = userStorage.getUserById(userId);
-        User friend = userStorage.getUserById(friendId);
-
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
-        userStorage.updateUser(user);
-        userStorage.updateUser(friend);
-        log.info("Пользователи {} и {} больше не друзья", userId, friendId);
+        if (!userStorage.removeFriend(userId, friendId)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Пользователи {} и {} не были друзьями", userId, friendId);
+            }
+            return;
+        }
+        friendRecommendationCache.invalidate(userId, friendId);
+        feedService.friendRemoved(userId, friendId);
+        friendsRemoved.increment();
+        if (log.isDebugEnabled()) {
+            log.debug("Пользователи {} и {} больше не друзья", userId, friendId);
+        }
+    }
+
+    // Некорректные элементы отсекаются здесь, остальные применяются хранилищем за один проход;
+    // ответ содержит результат каждого элемента в порядке запроса
+    public List<BatchItemResult> applyFriendshipChanges(List<FriendshipChange> changes) {
+        BatchItemResult[] results = new BatchItemResult[changes.size()];
+        List<FriendshipChange> valid = new ArrayList<>(changes.size());
+        int[] positions = new int[changes.size()];
+        for (int i = 0; i < changes.size(); i++) {
+            FriendshipChange change = changes.get(i);
+            if (change == null || change.getUserId() <= 0 || change.getFriendId() <= 0 || change.getAction() == null) {
+                results[i] = new BatchItemResult(BatchItemStatus.INVALID,
+                        "Нужны положительные userId и friendId и action ADD или REMOVE");
+            } else if (change.getUserId() == change.getFriendId()) {
+                results[i] = new BatchItemResult(BatchItemStatus.INVALID, "Нельзя добавить самого себя в друзья");
+            } else {
+                positions[valid.size()] = i;
+                valid.add(change);
+            }
+        }
+
+        List<BatchItemStatus> statuses = valid.isEmpty() ? List.of() : userStorage.applyFriendshipChanges(valid);
+        long added = 0;
+        long removed = 0;
+        for (int j = 0; j < statuses.size(); j++) {
+            FriendshipChange change = valid.get(j);
+            boolean adding = change.getAction() == ChangeAction.ADD;
+            String message = switch (statuses.get(j)) {
+                case APPLIED -> null;
+                case NOT_FOUND -> "Пользователь с id=" + change.getUserId() + " или id=" + change.getFriendId()
+                        + " не найден";
+                case UNCHANGED -> adding ? "Пользователь уже в друзьях" : "Пользователи не друзья";
+                case INVALID -> "Некорректное изменение";
+            };
+            if (statuses.get(j) == BatchItemStatus.APPLIED) {
+                friendRecommendationCache.invalidate(change.getUserId(), change.getFriendId());
+                if (adding) {
+                    feedService.friendAdded(change.getUserId(), change.getFriendId());
+                    added++;
+                } else {
+                    feedService.friendRemoved(change.getUserId(), change.getFriendId());
+                    removed++;
+                }
+            }
+            results[positions[j]] = new BatchItemResult(statuses.get(j), message);
+        }
+        friendsAdded.increment(added);
+        friendsRemoved.increment(removed);
+        log.info("Пакет изменений дружбы: {} изменений, добавлено {}, удалено {}", changes.size(), added, removed);
+        return Arrays.asList(results);
     }
 
     public List<User> getFriends(long userId) {
-        User user = userStorage.getUserById(userId);
-        return user.getFriends().stream()
-                .map(userStorage::getUserById)
-                .collect(Collectors.toList());
+        long started = System.nanoTime();
+        try {
+            User user = userStorage.getUserById(userId);
+            return userStorage.getUsersByIds(user.getFriends());
+        } finally {
+            friendsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
     }
 
     public List<User> getCommonFriends(long userId, long otherUserId) {
-        log.debug("Поиск общих друзей для {} и {}", userId, otherUserId);
-
-        List<User> commonFriends = userStorage.getUserById(userId).getFriends().stream()
-                .filter(userStorage.getUserById(otherUserId).getFriends()::contains)
-                .map(userStorage::getUserById)
-                .collect(Collectors.toList());
-
-        log.info("Найдено {} общих друзей между {} и {}",
-                commonFriends.size(), userId, otherUserId);
-
+        List<User> commonFriends = userStorage.getCommonFriends(userId, otherUserId);
+        if (log.isDebugEnabled()) {
+            log.debug("Найдено {} общих друзей между {} и {}", commonFriends.size(), userId, otherUserId);
+        }
         return commonFriends;
     }
 }
\ No newline at end of file
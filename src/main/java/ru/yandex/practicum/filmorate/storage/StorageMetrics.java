@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Таймеры операций хранилища filmorate.storage{storage, operation}. Создаются один раз в конструкторе хранилища,
+// так что замер в методе — два System.nanoTime() и record без поиска метра и массивов тегов
+public final class StorageMetrics {
+    public static final String TIMER_NAME = "filmorate.storage";
+
+    private StorageMetrics() {
+    }
+
+    public static Timer timer(MeterRegistry registry, String storage, String operation) {
+        return Timer.builder(TIMER_NAME)
+                .description("Время операций хранилища")
+                .tag("storage", storage)
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
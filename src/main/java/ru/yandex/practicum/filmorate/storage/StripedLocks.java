@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Набор блокировок, распределённых по ID сущности: записи в разные фильмы/пользователей не конкурируют
+public class StripedLocks {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public ReentrantLock forId(long id) {
+        return locks[indexOf(id)];
+    }
+
+    // Захватывает блокировки двух сущностей в порядке номеров полос, чтобы исключить взаимную блокировку
+    public void lockBoth(long first, long second) {
+        int a = indexOf(first);
+        int b = indexOf(second);
+        locks[Math.min(a, b)].lock();
+        if (a != b) {
+            locks[Math.max(a, b)].lock();
+        }
+    }
+
+    public void unlockBoth(long first, long second) {
+        int a = indexOf(first);
+        int b = indexOf(second);
+        if (a != b) {
+            locks[Math.max(a, b)].unlock();
+        }
+        locks[Math.min(a, b)].unlock();
+    }
+
+    private int indexOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
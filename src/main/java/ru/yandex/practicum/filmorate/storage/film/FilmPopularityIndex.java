@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Рейтинг фильмов по (количество лайков desc, id asc), обновляемый за O(log n).
+// Обновления одного фильма сериализует хранилище, чтение идёт без блокировок
+class FilmPopularityIndex {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    void update(long filmId, int likes) {
+        Entry previous = entries.get(filmId);
+        if (previous != null && previous.likes() == likes) {
+            return;
+        }
+        Entry entry = new Entry(filmId, likes);
+        ranking.add(entry);
+        entries.put(filmId, entry);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+    }
+
+    int likes(long filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.likes();
+    }
+
+    List<Long> top(int count) {
+        List<Long> result = new ArrayList<>(Math.min(count, entries.size()));
+        for (Entry entry : ranking) {
+            if (result.size() == count) {
+                break;
+            }
+            // пропускаем устаревшую позицию фильма, который прямо сейчас перемещается в рейтинге
+            if (entries.get(entry.filmId()) == entry) {
+                result.add(entry.filmId());
+            }
+        }
+        return result;
+    }
+
+    // Не больше count самых популярных фильмов с лайками; фильмы без лайков идут в рейтинге по ID,
+    // и их порядок популярностью не является
+    long[] topLiked(int count) {
+        long[] result = new long[Math.min(count, entries.size())];
+        int size = 0;
+        for (Entry entry : ranking) {
+            if (size == result.length || entry.likes() == 0) {
+                break;
+            }
+            if (entries.get(entry.filmId()) == entry) {
+                result[size++] = entry.filmId();
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    void clear() {
+        ranking.clear();
+        entries.clear();
+    }
+
+    private record Entry(long filmId, int likes) {
+    }
+}
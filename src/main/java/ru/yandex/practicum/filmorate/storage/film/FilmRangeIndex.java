@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.FilmRangeCursor;
+
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Упорядоченный индекс (значение, ID фильма) для диапазонных запросов: поиск начала за O(log n), затем
+// обход подряд. Обновления одного фильма сериализует хранилище, чтение идёт без блокировок. При смене
+// значения новая запись добавляется раньше, чем удаляется старая, поэтому читатель может встретить фильм
+// дважды или по устаревшему значению — вызывающий сверяет найденный фильм с условием сам
+class FilmRangeIndex {
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::value)
+            .thenComparingLong(Entry::filmId);
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+    void update(long filmId, Long previous, Long current) {
+        if (previous != null && previous.equals(current)) {
+            return;
+        }
+        if (current != null) {
+            entries.add(new Entry(current, filmId));
+        }
+        if (previous != null) {
+            entries.remove(new Entry(previous, filmId));
+        }
+    }
+
+    // Обходит фильмы со значениями от from до to включительно по возрастанию значения, затем ID, пока action
+    // возвращает true. С курсором обход начинается сразу после его позиции
+    void forEachInRange(long from, long to, FilmRangeCursor after, EntryAction action) {
+        Entry start = new Entry(from, Long.MIN_VALUE);
+        boolean inclusive = true;
+        if (after != null && ORDER.compare(new Entry(after.getValue(), after.getFilmId()), start) >= 0) {
+            start = new Entry(after.getValue(), after.getFilmId());
+            inclusive = false;
+        }
+        Entry end = new Entry(to, Long.MAX_VALUE);
+        if (ORDER.compare(start, end) > 0) {
+            return;
+        }
+        for (Entry entry : entries.subSet(start, inclusive, end, true)) {
+            if (!action.accept(entry.value(), entry.filmId())) {
+                return;
+            }
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    interface EntryAction {
+        boolean accept(long value, long filmId);
+    }
+
+    private record Entry(long value, long filmId) {
+    }
+}
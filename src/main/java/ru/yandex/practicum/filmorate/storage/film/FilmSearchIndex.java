@@ -0,0 +1,365 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntCounter;
+import ru.yandex.practicum.filmorate.util.SearchTokenizer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.LongToIntFunction;
+
+// Обратный индекс слов названия и описания: слово → ID фильмов. Словарь отсортирован, поэтому префикс
+// раскрывается диапазоном слов. Хранилище меняет индекс под блокировкой фильма, а множества одного слова
+// общие для разных фильмов, поэтому каждое слово дополнительно защищено своей полосой
+class FilmSearchIndex {
+    // совпадение в названии весомее, чем в описании, целое слово — весомее префикса
+    static final int NAME_WEIGHT = 3;
+    static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_FACTOR = 2;
+    // лайки добавляют к весу логарифм: 1000 лайков стоят примерно одного совпадения в названии
+    static final double LIKE_BOOST = 0.5;
+    // однобуквенный префикс раскрылся бы в заметную часть словаря
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_EXPANSIONS = 32;
+    static final int MAX_QUERY_TOKENS = 8;
+    // у слов из тысяч описаний проверяется только часть фильмов: время запроса не растёт с каталогом
+    private static final int MAX_CANDIDATES = 5_000;
+    // при отсечении сначала берутся совпавшие фильмы из верхушки рейтинга лайков; каждый проверяется
+    // во всех раскрытиях слова, поэтому верхушка небольшая: 250 фильмов стоят ~0,4 мс на префиксе при 1M
+    private static final int POPULAR_CANDIDATES = 250;
+
+    private final ConcurrentNavigableMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    private final StripedLocks locks = new StripedLocks(256);
+
+    // Фильм сохранён целиком: переносим разницу между словами прежней и новой версии
+    void replace(long filmId, Film previous, Film current) {
+        Set<String> previousName = previous == null ? Set.of() : SearchTokenizer.tokens(previous.getName());
+        Set<String> previousDescription = previous == null ? Set.of()
+                : SearchTokenizer.tokens(previous.getDescription());
+        Set<String> currentName = SearchTokenizer.tokens(current.getName());
+        Set<String> currentDescription = SearchTokenizer.tokens(current.getDescription());
+        update(filmId, previousName, currentName, true);
+        update(filmId, previousDescription, currentDescription, false);
+    }
+
+    // Не больше limit ID фильмов, совпавших со всеми словами запроса целиком или как префикс,
+    // по убыванию веса с учётом лайков, при равенстве — по возрастанию ID
+    long[] search(String query, int limit, FilmPopularityIndex popularity) {
+        List<String> tokens = new ArrayList<>(SearchTokenizer.tokens(query));
+        if (tokens.isEmpty()) {
+            return new long[0];
+        }
+        tokens = tokens.subList(0, Math.min(tokens.size(), MAX_QUERY_TOKENS));
+        List<List<String>> expansions = new ArrayList<>(tokens.size());
+        long[] sizes = new long[tokens.size()];
+        int driver = 0;
+        for (int t = 0; t < tokens.size(); t++) {
+            List<String> words = expand(tokens.get(t));
+            if (words.isEmpty()) {
+                return new long[0];
+            }
+            for (String word : words) {
+                sizes[t] += size(word);
+            }
+            if (sizes[t] < sizes[driver]) {
+                driver = t;
+            }
+            expansions.add(words);
+        }
+
+        // кандидаты — фильмы самого редкого слова запроса, остальные слова их только отсеивают. Если их
+        // больше MAX_CANDIDATES, первыми берутся самые популярные из них, а остаток — в порядке хранения
+        Candidates candidates = new Candidates();
+        if (sizes[driver] > MAX_CANDIDATES) {
+            collectPopular(tokens.get(driver), expansions.get(driver), candidates,
+                    popularity.topLiked(POPULAR_CANDIDATES));
+        }
+        collect(tokens.get(driver), expansions.get(driver), candidates);
+        int[] weights = candidates.weights();
+        for (int t = 0; t < tokens.size() && candidates.size() > 0; t++) {
+            if (t == driver) {
+                continue;
+            }
+            int[] best = new int[candidates.size()];
+            // проверка каждого кандидата в каждом раскрытии или обход фильмов слова — что дешевле
+            boolean scan = sizes[t] < (long) candidates.size() * expansions.get(t).size();
+            for (String word : expansions.get(t)) {
+                match(word, word.equals(tokens.get(t)), candidates, best, scan);
+            }
+            for (int i = 0; i < best.length; i++) {
+                weights[i] = best[i] == 0 || weights[i] < 0 ? -1 : weights[i] + best[i];
+            }
+        }
+        return rank(candidates, weights, limit, popularity::likes);
+    }
+
+    void clear() {
+        terms.clear();
+    }
+
+    private void update(long filmId, Set<String> previous, Set<String> current, boolean name) {
+        for (String word : previous) {
+            if (!current.contains(word)) {
+                remove(word, filmId, name);
+            }
+        }
+        for (String word : current) {
+            if (!previous.contains(word)) {
+                add(word, filmId, name);
+            }
+        }
+    }
+
+    private void add(String word, long filmId, boolean name) {
+        Lock lock = locks.forId(word.hashCode());
+        lock.lock();
+        try {
+            Postings postings = terms.computeIfAbsent(word, w -> new Postings());
+            (name ? postings.name : postings.description).add(filmId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(String word, long filmId, boolean name) {
+        Lock lock = locks.forId(word.hashCode());
+        lock.lock();
+        try {
+            Postings postings = terms.get(word);
+            if (postings == null) {
+                return;
+            }
+            (name ? postings.name : postings.description).remove(filmId);
+            // словарь не держит слов без фильмов: иначе после правок описаний он рос бы без предела
+            if (postings.name.isEmpty() && postings.description.isEmpty()) {
+                terms.remove(word);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Слово целиком (оно первое в диапазоне) и не больше MAX_EXPANSIONS слов, начинающихся с него
+    private List<String> expand(String token) {
+        if (token.length() < MIN_PREFIX_LENGTH) {
+            return terms.containsKey(token) ? List.of(token) : List.of();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : terms.subMap(token, true, token + Character.MAX_VALUE, false).keySet()) {
+            if (words.size() == MAX_EXPANSIONS) {
+                break;
+            }
+            words.add(word);
+        }
+        return words;
+    }
+
+    private long size(String word) {
+        Lock lock = locks.forId(word.hashCode());
+        lock.lock();
+        try {
+            Postings postings = terms.get(word);
+            return postings == null ? 0 : postings.name.size() + postings.description.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Сначала совпадения в названиях по всем раскрытиям, затем в описаниях: при отсечении по MAX_CANDIDATES
+    // теряются только совпадения в описании. Слово целиком идёт первым, поэтому повторная встреча фильма
+    // в следующих раскрытиях его вес не поднимает
+    private void collect(String token, List<String> words, Candidates candidates) {
+        for (boolean name : new boolean[]{true, false}) {
+            for (String word : words) {
+                int room = MAX_CANDIDATES - candidates.size();
+                if (room <= 0) {
+                    return;
+                }
+                int weight = (name ? NAME_WEIGHT : DESCRIPTION_WEIGHT) * (word.equals(token) ? EXACT_FACTOR : 1);
+                Lock lock = locks.forId(word.hashCode());
+                lock.lock();
+                try {
+                    Postings postings = terms.get(word);
+                    if (postings != null) {
+                        (name ? postings.name : postings.description).forEachLong(
+                                filmId -> candidates.offer(filmId, weight), room);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Популярные фильмы, в которых есть слово запроса: проверка каждого в раскрытиях вместо обхода их фильмов
+    private void collectPopular(String token, List<String> words, Candidates candidates, long[] popular) {
+        for (String word : words) {
+            int factor = word.equals(token) ? EXACT_FACTOR : 1;
+            Lock lock = locks.forId(word.hashCode());
+            lock.lock();
+            try {
+                Postings postings = terms.get(word);
+                if (postings == null) {
+                    continue;
+                }
+                for (long filmId : popular) {
+                    if (postings.name.contains(filmId)) {
+                        candidates.offer(filmId, NAME_WEIGHT * factor);
+                    } else if (postings.description.contains(filmId)) {
+                        candidates.offer(filmId, DESCRIPTION_WEIGHT * factor);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // best[i] — наибольший вес совпадения i-го кандидата со словом запроса среди его раскрытий
+    private void match(String word, boolean exact, Candidates candidates, int[] best, boolean scan) {
+        int factor = exact ? EXACT_FACTOR : 1;
+        Lock lock = locks.forId(word.hashCode());
+        lock.lock();
+        try {
+            Postings postings = terms.get(word);
+            if (postings == null) {
+                return;
+            }
+            if (scan) {
+                postings.description.forEachLong(filmId -> candidates.raise(best, filmId,
+                        DESCRIPTION_WEIGHT * factor));
+                postings.name.forEachLong(filmId -> candidates.raise(best, filmId, NAME_WEIGHT * factor));
+                return;
+            }
+            for (int i = 0; i < best.length; i++) {
+                long filmId = candidates.id(i);
+                int weight = postings.name.contains(filmId) ? NAME_WEIGHT
+                        : postings.description.contains(filmId) ? DESCRIPTION_WEIGHT : 0;
+                best[i] = Math.max(best[i], weight * factor);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Лайки читаются уже без полос слов: функция может обращаться к хранилищу.
+    // Лучшие limit отбираются ограниченной кучей, в корне — худший из отобранных
+    private static long[] rank(Candidates candidates, int[] weights, int limit, LongToIntFunction likes) {
+        long[] heapIds = new long[Math.min(limit, candidates.size())];
+        double[] heapScores = new double[heapIds.length];
+        int count = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (weights[i] <= 0) {
+                continue;
+            }
+            long filmId = candidates.id(i);
+            double score = weights[i] + LIKE_BOOST * Math.log1p(likes.applyAsInt(filmId));
+            if (count < heapIds.length) {
+                heapIds[count] = filmId;
+                heapScores[count] = score;
+                siftUp(heapIds, heapScores, count++);
+            } else if (count > 0 && worse(heapIds[0], heapScores[0], filmId, score)) {
+                heapIds[0] = filmId;
+                heapScores[0] = score;
+                siftDown(heapIds, heapScores, count);
+            }
+        }
+        long[] result = new long[count];
+        for (int last = count - 1; last >= 0; last--) {
+            result[last] = heapIds[0];
+            heapIds[0] = heapIds[last];
+            heapScores[0] = heapScores[last];
+            siftDown(heapIds, heapScores, last);
+        }
+        return result;
+    }
+
+    private static void siftUp(long[] ids, double[] scores, int child) {
+        while (child > 0 && worse(ids[child], scores[child], ids[(child - 1) / 2], scores[(child - 1) / 2])) {
+            swap(ids, scores, child, (child - 1) / 2);
+            child = (child - 1) / 2;
+        }
+    }
+
+    private static void siftDown(long[] ids, double[] scores, int count) {
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= count) {
+                return;
+            }
+            if (child + 1 < count && worse(ids[child + 1], scores[child + 1], ids[child], scores[child])) {
+                child++;
+            }
+            if (!worse(ids[child], scores[child], ids[parent], scores[parent])) {
+                return;
+            }
+            swap(ids, scores, parent, child);
+            parent = child;
+        }
+    }
+
+    private static boolean worse(long id, double score, long otherId, double otherScore) {
+        return score < otherScore || score == otherScore && id > otherId;
+    }
+
+    private static void swap(long[] ids, double[] scores, int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    // Кандидаты запроса по порядку появления: позиция в массивах ищется по ID через счётчик (позиция + 1)
+    private static final class Candidates {
+        private final LongIntCounter positions = new LongIntCounter();
+        private long[] ids = new long[16];
+        private int[] weights = new int[16];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long id(int index) {
+            return ids[index];
+        }
+
+        // Добавляет фильм или поднимает его вес до weight
+        void offer(long filmId, int weight) {
+            int position = positions.get(filmId) - 1;
+            if (position < 0) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    weights = Arrays.copyOf(weights, size * 2);
+                }
+                position = size++;
+                positions.add(filmId, position + 1);
+                ids[position] = filmId;
+            }
+            weights[position] = Math.max(weights[position], weight);
+        }
+
+        void raise(int[] best, long filmId, int weight) {
+            int position = positions.get(filmId) - 1;
+            if (position >= 0) {
+                best[position] = Math.max(best[position], weight);
+            }
+        }
+
+        int[] weights() {
+            return weights;
+        }
+    }
+
+    private static final class Postings {
+        final LongHashSet name = new LongHashSet();
+        final LongHashSet description = new LongHashSet();
+    }
+}
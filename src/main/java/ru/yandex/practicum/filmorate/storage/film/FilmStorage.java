@@ -1,8 +1,15 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmRangeCursor;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
@@ -10,9 +17,51 @@ public interface FilmStorage {
 
     Film getFilmById(long id);
 
+    List<Film> getFilmsByIds(Collection<Long> ids);
+
+    // Не больше limit фильмов по возрастанию ID, начиная со следующего после afterId
+    List<Film> getFilmsPage(long afterId, int limit);
+
+    // Не больше limit фильмов, подходящих под все диапазоны фильтра, по возрастанию даты релиза, если её диапазон
+    // задан, иначе длительности; при равенстве — по ID. С курсором — начиная со следующего после него
+    List<Film> findFilms(FilmFilter filter, FilmRangeCursor after, int limit);
+
+    // Фильмы, которые лайкнул userId: не больше limit по возрастанию ID после afterId.
+    // Существование пользователя проверяет вызывающий
+    List<Film> getLikedFilmsPage(long userId, long afterId, int limit);
+
+    // Обходит все фильмы, не собирая их в один список; action вызывается вне блокировок хранилища
+    void forEachFilm(Consumer<Film> action);
+
     Film createFilm(Film film);
 
+    // Сохраняет уже проверенные фильмы одним вызовом и проставляет им ID в порядке списка
+    List<Film> createFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
+    boolean addLike(long filmId, long userId);
+
+    boolean removeLike(long filmId, long userId);
+
+    // Применяет изменения лайков за один проход и возвращает статусы в порядке changes:
+    // APPLIED, UNCHANGED или NOT_FOUND, если фильма нет. Пользователей проверяет вызывающий
+    List<BatchItemStatus> applyLikeChanges(List<LikeChange> changes);
+
+    List<Film> getPopularFilms(int count);
+
+    // Фильмы, которые лайкали пользователи с похожими лайками, а сам userId — нет: ID фильма → вес,
+    // по убыванию веса. maxFanOut ограничивает обход на каждом уровне, maxNeighbours — число похожих пользователей
+    Map<Long, Integer> recommendFilms(long userId, int limit, int maxFanOut, int maxNeighbours);
+
+    // Фильмы, в названии или описании которых есть все слова запроса (целиком или как префикс),
+    // по убыванию релевантности с поправкой на число лайков; не больше limit
+    List<Film> searchFilms(String query, int limit);
+
+    // Количества для метрик: вызываются при каждом сборе, поэтому должны быть дешёвыми
+    long countFilms();
+
+    long countLikes();
+
     void clear();
 }
@@ -1,65 +1,711 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.ChangeAction;
 import ru.yandex.practicum.filmorate.model.Film;
-import java.time.LocalDate;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmRangeCursor;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.storage.StorageMetrics;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.journal.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntCounter;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
+// Фильм в films — неизменяемая версия: запись под блокировкой фильма строит новую версию с новым множеством
+// лайков и публикует её одним put, поэтому чтение идёт без блокировок и никогда не видит изменение наполовину
 @Component
+@Profile("!jdbc")
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
-    private long idCounter = 1;
+    // упорядочено по ID, чтобы страница стоила O(log n + limit)
+    private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+    private final UserLikesIndex userLikes = new UserLikesIndex();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final FilmRangeIndex releaseDateIndex = new FilmRangeIndex();
+    private final FilmRangeIndex durationIndex = new FilmRangeIndex();
+    private final StripedLocks locks = new StripedLocks(256);
+    private final AtomicLong idCounter = new AtomicLong(1);
+    // счётчики для метрик: size() у ConcurrentSkipListMap обходит всю карту, а лайки пришлось бы суммировать
+    private final LongAdder filmCount = new LongAdder();
+    private final LongAdder likeCount = new LongAdder();
+    private final Timer getTimer;
+    private final Timer getByIdsTimer;
+    private final Timer getAllTimer;
+    private final Timer pageTimer;
+    private final Timer likedPageTimer;
+    private final Timer createTimer;
+    private final Timer createBatchTimer;
+    private final Timer updateTimer;
+    private final Timer addLikeTimer;
+    private final Timer removeLikeTimer;
+    private final Timer likeBatchTimer;
+    private final Timer popularTimer;
+    private final Timer recommendTimer;
+    private final Timer searchTimer;
+    private final Timer findTimer;
+    private volatile StorageJournal journal = StorageJournal.NOOP;
+    // фильмы из снимка, ещё не перенесённые в films; сбрасывается, когда перенесены все
+    private volatile MappedSnapshot snapshot;
+    // фоновое построение индексов поиска, диапазонов и лайков пользователей по фильмам снимка
+    private volatile CompletableFuture<Void> snapshotIndexing = CompletableFuture.completedFuture(null);
+    // все фильмы снимка уже в индексах, и find не добавляет их туда повторно
+    private volatile boolean snapshotIndexed = true;
+
+    public InMemoryFilmStorage() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(MeterRegistry meterRegistry) {
+        getTimer = StorageMetrics.timer(meterRegistry, "films", "getById");
+        getByIdsTimer = StorageMetrics.timer(meterRegistry, "films", "getByIds");
+        getAllTimer = StorageMetrics.timer(meterRegistry, "films", "getAll");
+        pageTimer = StorageMetrics.timer(meterRegistry, "films", "getPage");
+        likedPageTimer = StorageMetrics.timer(meterRegistry, "films", "getLikedPage");
+        createTimer = StorageMetrics.timer(meterRegistry, "films", "create");
+        createBatchTimer = StorageMetrics.timer(meterRegistry, "films", "createBatch");
+        updateTimer = StorageMetrics.timer(meterRegistry, "films", "update");
+        addLikeTimer = StorageMetrics.timer(meterRegistry, "films", "addLike");
+        removeLikeTimer = StorageMetrics.timer(meterRegistry, "films", "removeLike");
+        likeBatchTimer = StorageMetrics.timer(meterRegistry, "films", "applyLikeChanges");
+        popularTimer = StorageMetrics.timer(meterRegistry, "films", "getPopular");
+        recommendTimer = StorageMetrics.timer(meterRegistry, "films", "recommendFilms");
+        searchTimer = StorageMetrics.timer(meterRegistry, "films", "search");
+        findTimer = StorageMetrics.timer(meterRegistry, "films", "find");
+    }
+
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    // Подключает отображённый в память снимок: рейтинг строится по индексу снимка, сами фильмы
+    // декодируются при первом обращении. Индексы поиска, диапазонов и лайков пользователей строятся
+    // в фоне, запросы к ним ждут окончания. Вызывается при старте до проигрывания журнала
+    public void attachSnapshot(MappedSnapshot snapshot) {
+        for (int i = 0; i < snapshot.filmCount(); i++) {
+            long id = snapshot.filmId(i);
+            popularityIndex.update(id, snapshot.filmLikes(i));
+            idCounter.accumulateAndGet(id + 1, Math::max);
+            likeCount.add(snapshot.filmLikes(i));
+        }
+        filmCount.add(snapshot.filmCount());
+        this.snapshot = snapshot;
+        snapshotIndexed = false;
+        snapshotIndexing = CompletableFuture.runAsync(() -> indexSnapshot(snapshot), runnable -> {
+            Thread thread = new Thread(runnable, "film-snapshot-index");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
 
     @Override
     public List<Film> getAllFilms() {
-        return new ArrayList<>(films.values());
+        long started = System.nanoTime();
+        try {
+            materializeAll();
+            return new ArrayList<>(films.values());
+        } finally {
+            getAllTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
     }
 
     @Override
     public Film getFilmById(long id) {
-        log.trace("Поиск фильма по ID: {}", id);
-        if (!films.containsKey(id)) {
-            log.error("Фильм с ID {} не найден", id);
-            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        long started = System.nanoTime();
+        try {
+            return require(id);
+        } finally {
+            getTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Long> ids) {
+        long started = System.nanoTime();
+        try {
+            return collect(ids);
+        } finally {
+            getByIdsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Пока снимок не перенесён целиком, ID из films и из отсортированного индекса снимка сливаются
+    // по возрастанию: декодируются только фильмы, попавшие на страницу
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            MappedSnapshot source = snapshot;
+            int position = source == null ? 0 : source.filmPositionAfter(afterId);
+            int count = source == null ? 0 : source.filmCount();
+            Iterator<Long> loaded = films.tailMap(afterId, false).keySet().iterator();
+            Long nextLoaded = loaded.hasNext() ? loaded.next() : null;
+            List<Film> page = new ArrayList<>();
+            while (page.size() < limit && (nextLoaded != null || position < count)) {
+                long id;
+                if (position < count && (nextLoaded == null || source.filmId(position) <= nextLoaded)) {
+                    id = source.filmId(position++);
+                    if (nextLoaded != null && nextLoaded == id) {
+                        nextLoaded = loaded.hasNext() ? loaded.next() : null;
+                    }
+                } else {
+                    id = nextLoaded;
+                    nextLoaded = loaded.hasNext() ? loaded.next() : null;
+                }
+                addIfPresent(page, id);
+            }
+            return page;
+        } finally {
+            pageTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Обратный индекс по фильмам снимка строится в фоне после старта, запрос дожидается его окончания
+    @Override
+    public List<Film> getLikedFilmsPage(long userId, long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            awaitSnapshotIndexes();
+            long[] filmIds = userLikes.page(userId, afterId, limit);
+            List<Film> page = new ArrayList<>(filmIds.length);
+            for (long id : filmIds) {
+                addIfPresent(page, id);
+            }
+            return page;
+        } finally {
+            likedPageTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
-        log.debug("Успешно найден фильм ID: {}", id);
-        return films.get(id);
     }
 
     @Override
     public Film createFilm(Film film) {
-        log.info("Создание нового фильма. Название: {}", film.getName());
-        LocalDate minReleaseDate = LocalDate.of(1895, 12, 28);
-        if (film.getReleaseDate().isBefore(minReleaseDate)) {
-            log.error("Попытка создать фильм с недопустимой датой релиза: {}", film.getReleaseDate());
-            throw new ValidationException("Дата релиза не может быть раньше 28 декабря 1895 года");
-        }
-        film.setId(idCounter++);
-        films.put(film.getId(), film);
-        log.info("Добавлен новый фильм: ID={}, Название={}", film.getId(), film.getName());
-        return film;
+        long started = System.nanoTime();
+        try {
+            log.debug("Создание нового фильма. Название: {}", film.getName());
+            if (film.getReleaseDate().isBefore(Film.MIN_RELEASE_DATE)) {
+                log.error("Попытка создать фильм с недопустимой датой релиза: {}", film.getReleaseDate());
+                throw new ValidationException("Дата релиза не может быть раньше 28 декабря 1895 года");
+            }
+            film.setId(idCounter.getAndIncrement());
+            Film published = version(film);
+            long position;
+            Lock lock = locks.forId(published.getId());
+            lock.lock();
+            try {
+                films.put(published.getId(), published);
+                popularityIndex.update(published.getId(), published.getLikes().size());
+                userLikes.replace(published.getId(), null, published.getLikes());
+                searchIndex.replace(published.getId(), null, published);
+                indexRanges(published.getId(), null, published);
+                filmCount.increment();
+                likeCount.add(published.getLikes().size());
+                position = journal.filmSaved(published);
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+            log.debug("Добавлен новый фильм: ID={}, Название={}", published.getId(), published.getName());
+            return published;
+        } finally {
+            createTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // ID выделяются одним блоком подряд, ожидание fsync — одно на весь список
+    @Override
+    public List<Film> createFilms(List<Film> newFilms) {
+        long started = System.nanoTime();
+        try {
+            long id = idCounter.getAndAdd(newFilms.size());
+            long position = 0;
+            List<Film> created = new ArrayList<>(newFilms.size());
+            for (Film film : newFilms) {
+                film.setId(id++);
+                Film published = version(film);
+                Lock lock = locks.forId(published.getId());
+                lock.lock();
+                try {
+                    films.put(published.getId(), published);
+                    popularityIndex.update(published.getId(), published.getLikes().size());
+                    userLikes.replace(published.getId(), null, published.getLikes());
+                    searchIndex.replace(published.getId(), null, published);
+                    indexRanges(published.getId(), null, published);
+                    likeCount.add(published.getLikes().size());
+                    position = journal.filmSaved(published);
+                } finally {
+                    lock.unlock();
+                }
+                created.add(published);
+            }
+            filmCount.add(newFilms.size());
+            journal.awaitDurable(position);
+            return created;
+        } finally {
+            createBatchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
     }
 
     @Override
     public Film updateFilm(Film film) {
-        log.debug("Начало обновления фильма ID: {}", film.getId());
-        if (!films.containsKey(film.getId())) {
-            log.error("Попытка обновления несуществующего фильма ID: {}", film.getId());
-            throw new NotFoundException("Фильм с id=" + film.getId() + " не найден");
+        long started = System.nanoTime();
+        try {
+            log.debug("Начало обновления фильма ID: {}", film.getId());
+            Film published = version(film);
+            long position;
+            Lock lock = locks.forId(published.getId());
+            lock.lock();
+            try {
+                Film previous = find(published.getId());
+                if (previous == null) {
+                    throw new NotFoundException("Фильм с id=" + published.getId() + " не найден");
+                }
+                films.put(published.getId(), published);
+                popularityIndex.update(published.getId(), published.getLikes().size());
+                userLikes.replace(published.getId(), previous.getLikes(), published.getLikes());
+                searchIndex.replace(published.getId(), previous, published);
+                indexRanges(published.getId(), previous, published);
+                likeCount.add(published.getLikes().size() - previous.getLikes().size());
+                position = journal.filmSaved(published);
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+            log.debug("Обновлен фильм: ID={}", published.getId());
+            return published;
+        } finally {
+            updateTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        long started = System.nanoTime();
+        try {
+            long position;
+            Lock lock = locks.forId(filmId);
+            lock.lock();
+            try {
+                Film film = require(filmId);
+                PersistentLongSet likes = likesOf(film).plus(userId);
+                if (likes == film.getLikes()) {
+                    return false;
+                }
+                films.put(filmId, version(film, likes));
+                popularityIndex.update(filmId, likes.size());
+                userLikes.add(userId, filmId);
+                likeCount.increment();
+                position = journal.likeChanged(filmId, userId, true);
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+            return true;
+        } finally {
+            addLikeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        long started = System.nanoTime();
+        try {
+            long position;
+            Lock lock = locks.forId(filmId);
+            lock.lock();
+            try {
+                Film film = require(filmId);
+                PersistentLongSet likes = likesOf(film).minus(userId);
+                if (likes == film.getLikes()) {
+                    return false;
+                }
+                films.put(filmId, version(film, likes));
+                popularityIndex.update(filmId, likes.size());
+                userLikes.remove(userId, filmId);
+                likeCount.decrement();
+                position = journal.likeChanged(filmId, userId, false);
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+            return true;
+        } finally {
+            removeLikeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Изменения сгруппированы по фильму: блокировка берётся, версия публикуется и рейтинг обновляется один раз
+    // на фильм, порядок изменений одного фильма сохраняется. Ожидание fsync — одно на весь пакет
+    @Override
+    public List<BatchItemStatus> applyLikeChanges(List<LikeChange> changes) {
+        long started = System.nanoTime();
+        try {
+            BatchItemStatus[] statuses = new BatchItemStatus[changes.size()];
+            int[] order = byFilm(changes);
+            long position = 0;
+            int from = 0;
+            while (from < order.length) {
+                long filmId = changes.get(order[from]).getFilmId();
+                int to = from + 1;
+                while (to < order.length && changes.get(order[to]).getFilmId() == filmId) {
+                    to++;
+                }
+                Lock lock = locks.forId(filmId);
+                lock.lock();
+                try {
+                    Film film = find(filmId);
+                    PersistentLongSet likes = film == null ? null : likesOf(film);
+                    for (int i = from; i < to; i++) {
+                        if (film == null) {
+                            statuses[order[i]] = BatchItemStatus.NOT_FOUND;
+                            continue;
+                        }
+                        LikeChange change = changes.get(order[i]);
+                        boolean add = change.getAction() == ChangeAction.ADD;
+                        PersistentLongSet next = add ? likes.plus(change.getUserId()) : likes.minus(change.getUserId());
+                        if (next == likes) {
+                            statuses[order[i]] = BatchItemStatus.UNCHANGED;
+                            continue;
+                        }
+                        if (add) {
+                            userLikes.add(change.getUserId(), filmId);
+                        } else {
+                            userLikes.remove(change.getUserId(), filmId);
+                        }
+                        likes = next;
+                        likeCount.add(add ? 1 : -1);
+                        position = journal.likeChanged(filmId, change.getUserId(), add);
+                        statuses[order[i]] = BatchItemStatus.APPLIED;
+                    }
+                    if (film != null && likes != film.getLikes()) {
+                        films.put(filmId, version(film, likes));
+                        popularityIndex.update(filmId, likes.size());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                from = to;
+            }
+            journal.awaitDurable(position);
+            return Arrays.asList(statuses);
+        } finally {
+            likeBatchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        long started = System.nanoTime();
+        try {
+            return collect(popularityIndex.top(count));
+        } finally {
+            popularTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Совместная фильтрация по обратному индексу: соседи — пользователи с наибольшим числом общих лайков,
+    // их считаем обходом лайкнувших каждый фильм пользователя, то есть пересечением разреженных векторов
+    // без перебора всех пар. Фильм соседа получает вес, равный числу общих лайков с ним.
+    // На каждом уровне обходится не больше maxFanOut связей, чтобы хиты и «лайкающие всё» не раздували расчёт
+    @Override
+    public Map<Long, Integer> recommendFilms(long userId, int limit, int maxFanOut, int maxNeighbours) {
+        long started = System.nanoTime();
+        try {
+            awaitSnapshotIndexes();
+            LongHashSet liked = userLikes.copy(userId);
+            LongIntCounter overlap = new LongIntCounter();
+            liked.forEachLong(filmId -> {
+                Film film = find(filmId);
+                if (film != null) {
+                    likesOf(film).forEachLong(neighbour -> {
+                        if (neighbour != userId) {
+                            overlap.increment(neighbour);
+                        }
+                    }, maxFanOut);
+                }
+            }, maxFanOut);
+
+            LongIntCounter scores = new LongIntCounter();
+            for (long neighbour : overlap.top(maxNeighbours)) {
+                int weight = overlap.get(neighbour);
+                userLikes.forEachFilm(neighbour, filmId -> {
+                    if (!liked.contains(filmId)) {
+                        scores.add(filmId, weight);
+                    }
+                }, maxFanOut);
+            }
+
+            Map<Long, Integer> result = new LinkedHashMap<>();
+            for (long filmId : scores.top(limit)) {
+                result.put(filmId, scores.get(filmId));
+            }
+            return result;
+        } finally {
+            recommendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
-        films.put(film.getId(), film);
-        log.info("Обновлен фильм: ID={}", film.getId());
-        return film;
+    }
+
+    // Диапазон даты релиза, если он задан, иначе длительности: начало или курсор ищется в индексе за O(log n),
+    // дальше обход подряд до limit подходящих. Вторым условием фильтруются фильмы первого диапазона.
+    // Запись индекса с устаревшим значением пропускается, поэтому фильм не попадает в выборку дважды
+    @Override
+    public List<Film> findFilms(FilmFilter filter, FilmRangeCursor after, int limit) {
+        long started = System.nanoTime();
+        try {
+            awaitSnapshotIndexes();
+            FilmRangeIndex index;
+            long from;
+            long to;
+            if (filter.hasReleaseRange()) {
+                index = releaseDateIndex;
+                from = filter.getReleasedFrom() == null ? Long.MIN_VALUE : filter.getReleasedFrom().toEpochDay();
+                to = filter.getReleasedTo() == null ? Long.MAX_VALUE : filter.getReleasedTo().toEpochDay();
+            } else {
+                index = durationIndex;
+                from = filter.getMinDuration() == null ? Long.MIN_VALUE : filter.getMinDuration();
+                to = filter.getMaxDuration() == null ? Long.MAX_VALUE : filter.getMaxDuration();
+            }
+            List<Film> result = new ArrayList<>();
+            index.forEachInRange(from, to, after, (value, filmId) -> {
+                Film film = find(filmId);
+                if (film != null && filter.rangeValue(film) == value && filter.matches(film)) {
+                    result.add(film);
+                }
+                return result.size() < limit;
+            });
+            return result;
+        } finally {
+            findTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Число лайков кандидата берётся из рейтинга популярных: это поиск в хэш-таблице, а не в дереве фильмов
+    @Override
+    public List<Film> searchFilms(String query, int limit) {
+        long started = System.nanoTime();
+        try {
+            awaitSnapshotIndexes();
+            long[] ids = searchIndex.search(query, limit, popularityIndex);
+            List<Film> result = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                addIfPresent(result, id);
+            }
+            return result;
+        } finally {
+            searchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long countFilms() {
+        return filmCount.sum();
+    }
+
+    @Override
+    public long countLikes() {
+        return likeCount.sum();
+    }
+
+    // Восстановление из снимка или журнала: фильм кладётся с его собственным ID и без записи в журнал
+    public void restoreFilm(Film film) {
+        Lock lock = locks.forId(film.getId());
+        lock.lock();
+        try {
+            Film previous = find(film.getId());
+            if (previous == null) {
+                filmCount.increment();
+            } else {
+                likeCount.add(-previous.getLikes().size());
+            }
+            Film published = version(film);
+            films.put(published.getId(), published);
+            popularityIndex.update(published.getId(), published.getLikes().size());
+            userLikes.replace(published.getId(), previous == null ? null : previous.getLikes(), published.getLikes());
+            searchIndex.replace(published.getId(), previous, published);
+            indexRanges(published.getId(), previous, published);
+            likeCount.add(published.getLikes().size());
+            idCounter.accumulateAndGet(published.getId() + 1, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Версии неизменяемы, поэтому потребитель (запись снимка, выгрузка клиенту) получает их без копий и блокировок
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        materializeAll();
+        films.values().forEach(action);
     }
 
     @Override
     public void clear() {
+        snapshot = null;
+        snapshotIndexing.join();
         films.clear();
-        idCounter = 1;
+        popularityIndex.clear();
+        userLikes.clear();
+        searchIndex.clear();
+        releaseDateIndex.clear();
+        durationIndex.clear();
+        idCounter.set(1);
+        filmCount.reset();
+        likeCount.reset();
         log.info("Хранилище фильмов очищено");
     }
+
+    private Film require(long id) {
+        Film film = find(id);
+        if (film == null) {
+            log.debug("Фильм с ID {} не найден", id);
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        }
+        return film;
+    }
+
+    private List<Film> collect(Collection<Long> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        if (ids instanceof LongHashSet set) {
+            set.forEachLong(id -> addIfPresent(result, id));
+        } else {
+            ids.forEach(id -> addIfPresent(result, id));
+        }
+        return result;
+    }
+
+    private Film find(long id) {
+        Film film = films.get(id);
+        MappedSnapshot source = snapshot;
+        if (film != null || source == null) {
+            return film;
+        }
+        Lock lock = locks.forId(id);
+        lock.lock();
+        try {
+            film = films.get(id);
+            if (film == null && snapshot != null) {
+                film = source.readFilm(id);
+                if (film != null) {
+                    film = version(film);
+                    films.put(id, film);
+                    if (!snapshotIndexed) {
+                        indexSnapshotFilm(id, film);
+                    }
+                }
+            }
+            return film;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Собственная копия присланного фильма: вызывающий может дальше менять свой объект, хранилище это не заденет
+    private static Film version(Film film) {
+        return version(film, PersistentLongSet.from(film.getLikes()));
+    }
+
+    private static Film version(Film film, PersistentLongSet likes) {
+        return new PublishedFilm(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), likes);
+    }
+
+    // В films лежат только версии, собранные через version
+    private static PersistentLongSet likesOf(Film film) {
+        return (PersistentLongSet) film.getLikes();
+    }
+
+    // Вызывается под блокировкой фильма
+    private void indexRanges(long filmId, Film previous, Film current) {
+        releaseDateIndex.update(filmId, previous == null ? null : epochDay(previous), epochDay(current));
+        durationIndex.update(filmId, previous == null ? null : previous.getDuration(), current.getDuration());
+    }
+
+    private static Long epochDay(Film film) {
+        return film.getReleaseDate() == null ? null : film.getReleaseDate().toEpochDay();
+    }
+
+    // Фильмы снимка декодируются по одному под своей блокировкой, попадают в индексы и в films не кладутся.
+    // Фильм, уже перенесённый в films, проиндексирован в find. Останавливается, если снимок отключён
+    private void indexSnapshot(MappedSnapshot source) {
+        long started = System.nanoTime();
+        for (int i = 0; i < source.filmCount() && snapshot == source; i++) {
+            long id = source.filmId(i);
+            Lock lock = locks.forId(id);
+            lock.lock();
+            try {
+                if (snapshot == source && !films.containsKey(id)) {
+                    Film film = source.readFilm(id);
+                    if (film != null) {
+                        indexSnapshotFilm(id, film);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        snapshotIndexed = true;
+        log.info("Индексы фильмов снимка построены за {} мс",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    // Вызывается под блокировкой фильма
+    private void indexSnapshotFilm(long id, Film film) {
+        userLikes.replace(id, null, film.getLikes());
+        searchIndex.replace(id, null, film);
+        indexRanges(id, null, film);
+    }
+
+    private void awaitSnapshotIndexes() {
+        snapshotIndexing.join();
+    }
+
+    private void materializeAll() {
+        MappedSnapshot source = snapshot;
+        if (source == null) {
+            return;
+        }
+        for (int i = 0; i < source.filmCount(); i++) {
+            find(source.filmId(i));
+        }
+        snapshot = null;
+        log.debug("Все фильмы снимка загружены в память: {}", source.filmCount());
+    }
+
+    // Индексы changes, устойчиво отсортированные по ID фильма
+    private static int[] byFilm(List<LikeChange> changes) {
+        return IntStream.range(0, changes.size())
+                .boxed()
+                .sorted(Comparator.comparingLong(i -> changes.get(i).getFilmId()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private void addIfPresent(List<Film> result, long id) {
+        Film film = find(id);
+        if (film != null) {
+            result.add(film);
+        }
+    }
 }
@@ -0,0 +1,581 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.ChangeAction;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmRangeCursor;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.storage.StorageMetrics;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.SearchTokenizer;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Repository
+@Profile("jdbc")
+@Slf4j
+public class JdbcFilmStorage implements FilmStorage {
+    private static final int IN_CHUNK_SIZE = 1000;
+    // как SearchTokenizer: нижний регистр, «ё» как «е», слово начинается после любого символа, кроме букв и цифр
+    private static final String NORMALIZED_NAME = "REPLACE(LOWER(name), 'ё', 'е')";
+    private static final String NORMALIZED_DESCRIPTION = "REPLACE(LOWER(COALESCE(description, '')), 'ё', 'е')";
+    private static final String WORD_START = "(^|[^\\p{L}\\p{N}])";
+    private static final RowMapper<Film> FILM_MAPPER = (rs, rowNum) -> new Film(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("description"),
+            rs.getObject("release_date", LocalDate.class),
+            rs.getLong("duration"),
+            new LongHashSet());
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final SimpleJdbcInsert filmInsert;
+    private final Timer getAllTimer;
+    private final Timer getTimer;
+    private final Timer getByIdsTimer;
+    private final Timer pageTimer;
+    private final Timer likedPageTimer;
+    private final Timer createTimer;
+    private final Timer createBatchTimer;
+    private final Timer updateTimer;
+    private final Timer addLikeTimer;
+    private final Timer removeLikeTimer;
+    private final Timer popularTimer;
+    private final Timer likeBatchTimer;
+    private final Timer recommendTimer;
+    private final Timer searchTimer;
+    private final Timer findTimer;
+
+    public JdbcFilmStorage(JdbcTemplate jdbc, NamedParameterJdbcTemplate namedJdbc, MeterRegistry meterRegistry) {
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        getAllTimer = StorageMetrics.timer(meterRegistry, "films", "getAll");
+        getTimer = StorageMetrics.timer(meterRegistry, "films", "getById");
+        getByIdsTimer = StorageMetrics.timer(meterRegistry, "films", "getByIds");
+        pageTimer = StorageMetrics.timer(meterRegistry, "films", "getPage");
+        likedPageTimer = StorageMetrics.timer(meterRegistry, "films", "getLikedPage");
+        createTimer = StorageMetrics.timer(meterRegistry, "films", "create");
+        createBatchTimer = StorageMetrics.timer(meterRegistry, "films", "createBatch");
+        updateTimer = StorageMetrics.timer(meterRegistry, "films", "update");
+        addLikeTimer = StorageMetrics.timer(meterRegistry, "films", "addLike");
+        removeLikeTimer = StorageMetrics.timer(meterRegistry, "films", "removeLike");
+        popularTimer = StorageMetrics.timer(meterRegistry, "films", "getPopular");
+        likeBatchTimer = StorageMetrics.timer(meterRegistry, "films", "applyLikeChanges");
+        recommendTimer = StorageMetrics.timer(meterRegistry, "films", "recommendFilms");
+        searchTimer = StorageMetrics.timer(meterRegistry, "films", "search");
+        findTimer = StorageMetrics.timer(meterRegistry, "films", "find");
+        this.filmInsert = new SimpleJdbcInsert(jdbc)
+                .withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration", "likes_count")
+                .usingGeneratedKeyColumns("id");
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        long started = System.nanoTime();
+        try {
+            List<Film> films = jdbc.query("SELECT * FROM films ORDER BY id", FILM_MAPPER);
+            Map<Long, Film> byId = new HashMap<>();
+            films.forEach(film -> byId.put(film.getId(), film));
+            jdbc.query("SELECT film_id, user_id FROM likes", rs -> {
+                Film film = byId.get(rs.getLong("film_id"));
+                if (film != null) {
+                    film.getLikes().add(rs.getLong("user_id"));
+                }
+            });
+            return films;
+        } finally {
+            getAllTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Film getFilmById(long id) {
+        long started = System.nanoTime();
+        try {
+            List<Film> films = jdbc.query("SELECT * FROM films WHERE id = ?", FILM_MAPPER, id);
+            if (films.isEmpty()) {
+                log.debug("Фильм с ID {} не найден", id);
+                throw new NotFoundException("Фильм с id=" + id + " не найден");
+            }
+            Film film = films.get(0);
+            jdbc.query("SELECT user_id FROM likes WHERE film_id = ?",
+                    rs -> {
+                        film.getLikes().add(rs.getLong("user_id"));
+                    }, id);
+            return film;
+        } finally {
+            getTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Long> ids) {
+        long started = System.nanoTime();
+        try {
+            Map<Long, Film> byId = new HashMap<>();
+            for (List<Long> chunk : chunks(ids)) {
+                namedJdbc.query("SELECT * FROM films WHERE id IN (:ids)", Map.of("ids", chunk), FILM_MAPPER)
+                        .forEach(film -> byId.put(film.getId(), film));
+            }
+            loadLikes(byId);
+
+            List<Film> result = new ArrayList<>(byId.size());
+            for (Long id : ids) {
+                Film film = byId.get(id);
+                if (film != null) {
+                    result.add(film);
+                }
+            }
+            return result;
+        } finally {
+            getByIdsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            List<Film> films = jdbc.query("SELECT * FROM films WHERE id > ? ORDER BY id LIMIT ?", FILM_MAPPER,
+                    afterId, limit);
+            Map<Long, Film> byId = new HashMap<>();
+            films.forEach(film -> byId.put(film.getId(), film));
+            loadLikes(byId);
+            return films;
+        } finally {
+            pageTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Диапазон читается по films_release_date_idx или films_duration_idx, второе условие проверяется по строкам.
+    // Курсор продолжает обход того же индекса: нижняя граница по значению, равные значения отсекаются по ID
+    @Override
+    public List<Film> findFilms(FilmFilter filter, FilmRangeCursor after, int limit) {
+        long started = System.nanoTime();
+        try {
+            Map<String, Object> params = new HashMap<>();
+            StringJoiner where = new StringJoiner(" AND ");
+            if (filter.getReleasedFrom() != null) {
+                where.add("release_date >= :releasedFrom");
+                params.put("releasedFrom", filter.getReleasedFrom());
+            }
+            if (filter.getReleasedTo() != null) {
+                where.add("release_date <= :releasedTo");
+                params.put("releasedTo", filter.getReleasedTo());
+            }
+            if (filter.getMinDuration() != null) {
+                where.add("duration >= :minDuration");
+                params.put("minDuration", filter.getMinDuration());
+            }
+            if (filter.getMaxDuration() != null) {
+                where.add("duration <= :maxDuration");
+                params.put("maxDuration", filter.getMaxDuration());
+            }
+            String column = filter.hasReleaseRange() ? "release_date" : "duration";
+            if (after != null) {
+                where.add(column + " >= :afterValue AND (" + column + " > :afterValue OR id > :afterId)");
+                params.put("afterValue", filter.hasReleaseRange()
+                        ? LocalDate.ofEpochDay(after.getValue()) : after.getValue());
+                params.put("afterId", after.getFilmId());
+            }
+            params.put("limit", limit);
+            String order = column + ", id";
+            List<Film> films = namedJdbc.query("SELECT * FROM films WHERE " + where + " ORDER BY " + order
+                    + " LIMIT :limit", params, FILM_MAPPER);
+            Map<Long, Film> byId = new HashMap<>();
+            films.forEach(film -> byId.put(film.getId(), film));
+            loadLikes(byId);
+            return films;
+        } finally {
+            findTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Диапазон по likes_user_film_idx: ни полного обхода лайков, ни сортировки
+    @Override
+    public List<Film> getLikedFilmsPage(long userId, long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            List<Film> films = jdbc.query("SELECT f.* FROM likes l JOIN films f ON f.id = l.film_id "
+                            + "WHERE l.user_id = ? AND l.film_id > ? ORDER BY l.film_id LIMIT ?",
+                    FILM_MAPPER, userId, afterId, limit);
+            Map<Long, Film> byId = new HashMap<>();
+            films.forEach(film -> byId.put(film.getId(), film));
+            loadLikes(byId);
+            return films;
+        } finally {
+            likedPageTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        List<Film> chunk = getFilmsPage(0, IN_CHUNK_SIZE);
+        while (!chunk.isEmpty()) {
+            chunk.forEach(action);
+            chunk = getFilmsPage(chunk.get(chunk.size() - 1).getId(), IN_CHUNK_SIZE);
+        }
+    }
+
+    @Override
+    @Transactional
+    public Film createFilm(Film film) {
+        long started = System.nanoTime();
+        try {
+            log.debug("Создание нового фильма. Название: {}", film.getName());
+            if (film.getReleaseDate().isBefore(Film.MIN_RELEASE_DATE)) {
+                log.error("Попытка создать фильм с недопустимой датой релиза: {}", film.getReleaseDate());
+                throw new ValidationException("Дата релиза не может быть раньше 28 декабря 1895 года");
+            }
+            Map<String, Object> values = new HashMap<>();
+            values.put("name", film.getName());
+            values.put("description", film.getDescription());
+            values.put("release_date", film.getReleaseDate());
+            values.put("duration", film.getDuration());
+            values.put("likes_count", film.getLikes().size());
+            film.setId(filmInsert.executeAndReturnKey(values).longValue());
+            insertLikes(film);
+            log.debug("Добавлен новый фильм: ID={}, Название={}", film.getId(), film.getName());
+            return film;
+        } finally {
+            createTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Одна пакетная вставка; ID выдаёт identity-столбец, они возвращаются ключами пакета в порядке строк
+    @Override
+    @Transactional
+    public List<Film> createFilms(List<Film> films) {
+        long started = System.nanoTime();
+        try {
+            SqlParameterSource[] rows = new SqlParameterSource[films.size()];
+            for (int i = 0; i < films.size(); i++) {
+                Film film = films.get(i);
+                rows[i] = new MapSqlParameterSource()
+                        .addValue("name", film.getName())
+                        .addValue("description", film.getDescription())
+                        .addValue("release_date", film.getReleaseDate())
+                        .addValue("duration", film.getDuration())
+                        .addValue("likes_count", film.getLikes().size());
+            }
+            KeyHolder keys = new GeneratedKeyHolder();
+            namedJdbc.batchUpdate("INSERT INTO films (name, description, release_date, duration, likes_count) "
+                    + "VALUES (:name, :description, :release_date, :duration, :likes_count)", rows, keys,
+                    new String[]{"id"});
+            List<Map<String, Object>> ids = keys.getKeyList();
+            for (int i = 0; i < films.size(); i++) {
+                films.get(i).setId(((Number) ids.get(i).get("id")).longValue());
+                insertLikes(films.get(i));
+            }
+            return films;
+        } finally {
+            createBatchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    @Transactional
+    public Film updateFilm(Film film) {
+        long started = System.nanoTime();
+        try {
+            log.debug("Начало обновления фильма ID: {}", film.getId());
+            int updated = jdbc.update("UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, "
+                            + "likes_count = ? WHERE id = ?",
+                    film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
+                    film.getLikes().size(), film.getId());
+            if (updated == 0) {
+                throw new NotFoundException("Фильм с id=" + film.getId() + " не найден");
+            }
+            jdbc.update("DELETE FROM likes WHERE film_id = ?", film.getId());
+            insertLikes(film);
+            log.debug("Обновлен фильм: ID={}", film.getId());
+            return film;
+        } finally {
+            updateTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(long filmId, long userId) {
+        long started = System.nanoTime();
+        try {
+            lockFilm(filmId);
+            try {
+                jdbc.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+            jdbc.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", filmId);
+            return true;
+        } finally {
+            addLikeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(long filmId, long userId) {
+        long started = System.nanoTime();
+        try {
+            lockFilm(filmId);
+            int deleted = jdbc.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?", filmId, userId);
+            if (deleted == 0) {
+                return false;
+            }
+            jdbc.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", filmId);
+            return true;
+        } finally {
+            removeLikeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Пакет проигрывается в памяти поверх уже существующих лайков, в базу уходит только итоговая разница:
+    // по одному JDBC-пакету вставок, удалений и пересчёта likes_count. Строки фильмов блокируются до чтения
+    // лайков, как и в addLike/removeLike, поэтому одиночный лайк не вклинится между чтением и записью
+    @Override
+    @Transactional
+    public List<BatchItemStatus> applyLikeChanges(List<LikeChange> changes) {
+        long started = System.nanoTime();
+        try {
+            Set<Long> filmIds = new HashSet<>();
+            Set<Long> userIds = new HashSet<>();
+            changes.forEach(change -> {
+                filmIds.add(change.getFilmId());
+                userIds.add(change.getUserId());
+            });
+            Set<Long> existingFilms = new HashSet<>();
+            for (List<Long> chunk : chunks(new TreeSet<>(filmIds))) {
+                existingFilms.addAll(namedJdbc.queryForList("SELECT id FROM films WHERE id IN (:ids) ORDER BY id "
+                        + "FOR UPDATE", Map.of("ids", chunk), Long.class));
+            }
+            Set<LikeKey> initial = new HashSet<>();
+            for (List<Long> films : chunks(existingFilms)) {
+                for (List<Long> users : chunks(userIds)) {
+                    namedJdbc.query("SELECT film_id, user_id FROM likes "
+                                    + "WHERE film_id IN (:films) AND user_id IN (:users)",
+                            Map.of("films", films, "users", users),
+                            rs -> {
+                                initial.add(new LikeKey(rs.getLong("film_id"), rs.getLong("user_id")));
+                            });
+                }
+            }
+
+            List<BatchItemStatus> statuses = new ArrayList<>(changes.size());
+            Set<LikeKey> liked = new HashSet<>(initial);
+            for (LikeChange change : changes) {
+                if (!existingFilms.contains(change.getFilmId())) {
+                    statuses.add(BatchItemStatus.NOT_FOUND);
+                    continue;
+                }
+                LikeKey key = new LikeKey(change.getFilmId(), change.getUserId());
+                boolean changed = change.getAction() == ChangeAction.ADD ? liked.add(key) : liked.remove(key);
+                statuses.add(changed ? BatchItemStatus.APPLIED : BatchItemStatus.UNCHANGED);
+            }
+
+            List<Object[]> inserts = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            for (LikeKey key : liked) {
+                if (!initial.contains(key)) {
+                    inserts.add(new Object[]{key.filmId(), key.userId()});
+                }
+            }
+            for (LikeKey key : initial) {
+                if (!liked.contains(key)) {
+                    deletes.add(new Object[]{key.filmId(), key.userId()});
+                }
+            }
+            // likes_count меняется на число действительно вставленных и удалённых строк, как в addLike/removeLike
+            Map<Long, Integer> deltas = new HashMap<>();
+            int[] inserted = jdbc.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", inserts);
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i] != 0) {
+                    deltas.merge((Long) inserts.get(i)[0], 1, Integer::sum);
+                }
+            }
+            int[] deleted = jdbc.batchUpdate("DELETE FROM likes WHERE film_id = ? AND user_id = ?", deletes);
+            for (int i = 0; i < deleted.length; i++) {
+                if (deleted[i] != 0) {
+                    deltas.merge((Long) deletes.get(i)[0], -1, Integer::sum);
+                }
+            }
+            List<Object[]> counts = new ArrayList<>(deltas.size());
+            deltas.forEach((filmId, delta) -> counts.add(new Object[]{delta, filmId}));
+            jdbc.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?", counts);
+            return statuses;
+        } finally {
+            likeBatchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        long started = System.nanoTime();
+        try {
+            List<Film> films = jdbc.query("SELECT * FROM films ORDER BY likes_count DESC, id LIMIT ?",
+                    FILM_MAPPER, count);
+            Map<Long, Film> byId = new LinkedHashMap<>();
+            films.forEach(film -> byId.put(film.getId(), film));
+            loadLikes(byId);
+            return films;
+        } finally {
+            popularTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Тот же расчёт, что и в памяти, одним запросом: соседи — по числу общих лайков среди не больше maxFanOut
+    // фильмов пользователя и maxFanOut лайкнувших каждый фильм, затем фильмы соседей, взвешенные этим числом.
+    // Выборка у крупных узлов — наименьшие ID; обратный обход идёт по likes_user_film_idx
+    @Override
+    public Map<Long, Integer> recommendFilms(long userId, int limit, int maxFanOut, int maxNeighbours) {
+        long started = System.nanoTime();
+        try {
+            Map<Long, Integer> result = new LinkedHashMap<>();
+            namedJdbc.query("SELECT film_id, SUM(overlap) AS score "
+                            + "FROM (SELECT l3.film_id, n.overlap, "
+                            + "ROW_NUMBER() OVER (PARTITION BY l3.user_id ORDER BY l3.film_id) AS position "
+                            + "FROM (SELECT neighbour, COUNT(*) AS overlap "
+                            + "FROM (SELECT l2.user_id AS neighbour, "
+                            + "ROW_NUMBER() OVER (PARTITION BY l2.film_id ORDER BY l2.user_id) AS position "
+                            + "FROM (SELECT film_id FROM likes WHERE user_id = :id "
+                            + "ORDER BY film_id LIMIT :fanOut) l1 "
+                            + "JOIN likes l2 ON l2.film_id = l1.film_id) likers "
+                            + "WHERE position <= :fanOut AND neighbour <> :id "
+                            + "GROUP BY neighbour ORDER BY overlap DESC, neighbour LIMIT :neighbours) n "
+                            + "JOIN likes l3 ON l3.user_id = n.neighbour) candidates "
+                            + "WHERE position <= :fanOut "
+                            + "AND NOT EXISTS (SELECT 1 FROM likes own "
+                            + "WHERE own.user_id = :id AND own.film_id = candidates.film_id) "
+                            + "GROUP BY film_id ORDER BY score DESC, film_id LIMIT :limit",
+                    Map.of("id", userId, "fanOut", maxFanOut, "neighbours", maxNeighbours, "limit", limit),
+                    rs -> {
+                        result.put(rs.getLong("film_id"), rs.getInt("score"));
+                    });
+            return result;
+        } finally {
+            recommendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Слово запроса ищется регулярным выражением от границы слова, вес — как у индекса в памяти, но без различия
+    // целого слова и префикса. Индекса слов в схеме нет, поэтому это просмотр таблицы
+    @Override
+    public List<Film> searchFilms(String query, int limit) {
+        long started = System.nanoTime();
+        try {
+            List<String> tokens = new ArrayList<>(SearchTokenizer.tokens(query));
+            if (tokens.isEmpty()) {
+                return new ArrayList<>();
+            }
+            tokens = tokens.subList(0, Math.min(tokens.size(), FilmSearchIndex.MAX_QUERY_TOKENS));
+            Map<String, Object> params = new HashMap<>();
+            params.put("limit", limit);
+            params.put("likeBoost", FilmSearchIndex.LIKE_BOOST);
+            StringJoiner matches = new StringJoiner(" AND ");
+            StringJoiner weights = new StringJoiner(" + ");
+            for (int i = 0; i < tokens.size(); i++) {
+                params.put("t" + i, WORD_START + tokens.get(i));
+                matches.add("(REGEXP_LIKE(" + NORMALIZED_NAME + ", :t" + i + ") "
+                        + "OR REGEXP_LIKE(" + NORMALIZED_DESCRIPTION + ", :t" + i + "))");
+                weights.add("CASE WHEN REGEXP_LIKE(" + NORMALIZED_NAME + ", :t" + i + ") "
+                        + "THEN " + FilmSearchIndex.NAME_WEIGHT + " ELSE " + FilmSearchIndex.DESCRIPTION_WEIGHT
+                        + " END");
+            }
+            List<Film> films = namedJdbc.query("SELECT * FROM films WHERE " + matches
+                            + " ORDER BY " + weights + " + :likeBoost * LN(1 + likes_count) DESC, id LIMIT :limit",
+                    params, FILM_MAPPER);
+            Map<Long, Film> byId = new HashMap<>();
+            films.forEach(film -> byId.put(film.getId(), film));
+            loadLikes(byId);
+            return films;
+        } finally {
+            searchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long countFilms() {
+        return count("SELECT COUNT(*) FROM films");
+    }
+
+    @Override
+    public long countLikes() {
+        return count("SELECT COUNT(*) FROM likes");
+    }
+
+    @Override
+    @Transactional
+    public void clear() {
+        jdbc.update("DELETE FROM likes");
+        jdbc.update("DELETE FROM films");
+        jdbc.execute("ALTER TABLE films ALTER COLUMN id RESTART WITH 1");
+        log.info("Хранилище фильмов очищено");
+    }
+
+    // Блокирует строку фильма до конца транзакции: изменения лайков одного фильма идут по очереди
+    private void lockFilm(long filmId) {
+        List<Long> found = jdbc.queryForList("SELECT id FROM films WHERE id = ? FOR UPDATE", Long.class, filmId);
+        if (found.isEmpty()) {
+            log.debug("Фильм с ID {} не найден", filmId);
+            throw new NotFoundException("Фильм с id=" + filmId + " не найден");
+        }
+    }
+
+    private void insertLikes(Film film) {
+        if (film.getLikes().isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(film.getLikes().size());
+        LongHashSet.from(film.getLikes()).forEachLong(userId -> rows.add(new Object[]{film.getId(), userId}));
+        jdbc.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", rows);
+    }
+
+    private void loadLikes(Map<Long, Film> films) {
+        for (List<Long> chunk : chunks(films.keySet())) {
+            namedJdbc.query("SELECT film_id, user_id FROM likes WHERE film_id IN (:ids)", Map.of("ids", chunk),
+                    rs -> {
+                        films.get(rs.getLong("film_id")).getLikes().add(rs.getLong("user_id"));
+                    });
+        }
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + IN_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private long count(String sql) {
+        Long count = jdbc.queryForObject(sql, Long.class);
+        return count != null ? count : 0;
+    }
+
+    private record LikeKey(long filmId, long userId) {
+    }
+}
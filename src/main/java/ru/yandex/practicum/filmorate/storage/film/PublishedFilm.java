@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+// Версия фильма, опубликованная хранилищем в памяти. Один и тот же объект лежит в карте и индексах и уходит
+// всем читателям, поэтому сеттеры запрещены: чтобы изменить фильм, нужно прислать новый объект в хранилище
+final class PublishedFilm extends Film {
+
+    PublishedFilm(long id, String name, String description, LocalDate releaseDate, long duration,
+                  PersistentLongSet likes) {
+        super(id, name, description, releaseDate, duration, likes);
+    }
+
+    @Override
+    public void setId(long id) {
+        throw published();
+    }
+
+    @Override
+    public void setName(String name) {
+        throw published();
+    }
+
+    @Override
+    public void setDescription(String description) {
+        throw published();
+    }
+
+    @Override
+    public void setReleaseDate(LocalDate releaseDate) {
+        throw published();
+    }
+
+    @Override
+    public void setDuration(long duration) {
+        throw published();
+    }
+
+    @Override
+    public void setLikes(Set<Long> likes) {
+        throw published();
+    }
+
+    private static UnsupportedOperationException published() {
+        return new UnsupportedOperationException("Опубликованную версию фильма нельзя изменять");
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.LongConsumer;
+
+// Обратный индекс лайков: пользователь → ID фильмов, которые он лайкнул. Хранилище меняет его под блокировкой
+// фильма, а лайки одного пользователя разным фильмам идут под разными блокировками, поэтому множество
+// пользователя дополнительно защищено своей полосой. Полоса берётся всегда после блокировки фильма и никогда
+// не держится при захвате блокировки фильма
+class UserLikesIndex {
+    private final Map<Long, LongHashSet> films = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks(256);
+
+    void add(long userId, long filmId) {
+        Lock lock = locks.forId(userId);
+        lock.lock();
+        try {
+            films.computeIfAbsent(userId, id -> new LongHashSet()).add(filmId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(long userId, long filmId) {
+        Lock lock = locks.forId(userId);
+        lock.lock();
+        try {
+            LongHashSet liked = films.get(userId);
+            // пустые множества не держим: пользователей без лайков большинство
+            if (liked != null && liked.remove(filmId) && liked.isEmpty()) {
+                films.remove(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Фильм сохранён целиком (создание, обновление, восстановление): переносим разницу между множествами лайков
+    void replace(long filmId, Set<Long> previous, Set<Long> current) {
+        PersistentLongSet before = PersistentLongSet.from(previous);
+        PersistentLongSet after = PersistentLongSet.from(current);
+        before.forEachLong(userId -> {
+            if (!after.contains(userId)) {
+                remove(userId, filmId);
+            }
+        });
+        after.forEachLong(userId -> {
+            if (!before.contains(userId)) {
+                add(userId, filmId);
+            }
+        });
+    }
+
+    int count(long userId) {
+        Lock lock = locks.forId(userId);
+        lock.lock();
+        try {
+            LongHashSet liked = films.get(userId);
+            return liked == null ? 0 : liked.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    LongHashSet copy(long userId) {
+        Lock lock = locks.forId(userId);
+        lock.lock();
+        try {
+            LongHashSet liked = films.get(userId);
+            return liked == null ? new LongHashSet() : new LongHashSet(liked);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Не больше limit ID фильмов пользователя, больших afterFilmId, по возрастанию
+    long[] page(long userId, long afterFilmId, int limit) {
+        Lock lock = locks.forId(userId);
+        lock.lock();
+        try {
+            LongHashSet liked = films.get(userId);
+            return liked == null ? new long[0] : liked.smallestAfter(afterFilmId, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Не больше limit фильмов пользователя; action выполняется под полосой и не должен брать блокировки хранилища
+    void forEachFilm(long userId, LongConsumer action, int limit) {
+        Lock lock = locks.forId(userId);
+        lock.lock();
+        try {
+            LongHashSet liked = films.get(userId);
+            if (liked != null) {
+                liked.forEachLong(action, limit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        films.clear();
+    }
+}
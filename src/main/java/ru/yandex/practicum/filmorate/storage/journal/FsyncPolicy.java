@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+public enum FsyncPolicy {
+    // запрос завершается только после fsync; параллельные запросы разделяют один fsync (group commit)
+    ALWAYS,
+    // fsync в фоне раз в fsync-interval: при падении ОС теряется не больше одного интервала
+    INTERVAL,
+    // сброс на диск оставлен операционной системе
+    NEVER
+}
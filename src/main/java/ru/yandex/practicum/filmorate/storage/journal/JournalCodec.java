@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Set;
+
+// Компактное двоичное представление фильмов и пользователей для журнала и снимков
+final class JournalCodec {
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private JournalCodec() {
+    }
+
+    static void writeFilm(DataOutput out, Film film) throws IOException {
+        out.writeLong(film.getId());
+        writeString(out, film.getName());
+        writeString(out, film.getDescription());
+        writeDate(out, film.getReleaseDate());
+        out.writeLong(film.getDuration());
+        writeIds(out, film.getLikes());
+    }
+
+    static Film readFilm(DataInput in) throws IOException {
+        return new Film(in.readLong(), readString(in), readString(in), readDate(in), in.readLong(), readIds(in));
+    }
+
+    static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeLong(user.getId());
+        writeString(out, user.getEmail());
+        writeString(out, user.getLogin());
+        writeString(out, user.getName());
+        writeDate(out, user.getBirthday());
+        writeIds(out, user.getFriends());
+    }
+
+    static User readUser(DataInput in) throws IOException {
+        return new User(in.readLong(), readString(in), readString(in), readString(in), readDate(in), readIds(in));
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? NO_DATE : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static void writeIds(DataOutput out, Set<Long> ids) throws IOException {
+        long[] values = ids instanceof PersistentLongSet set ? set.toLongArray() : LongHashSet.from(ids).toLongArray();
+        out.writeInt(values.length);
+        for (long id : values) {
+            out.writeLong(id);
+        }
+    }
+
+    private static LongHashSet readIds(DataInput in) throws IOException {
+        int size = in.readInt();
+        LongHashSet ids = new LongHashSet(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(in.readLong());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.journal")
+public class JournalProperties {
+    private boolean enabled = false;
+    private Path directory = Path.of("data");
+    private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+    private Duration fsyncInterval = Duration.ofMillis(50);
+    private Duration snapshotInterval = Duration.ofMinutes(10);
+}
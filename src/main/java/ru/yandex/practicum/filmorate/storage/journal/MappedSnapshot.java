@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Снимок, отображённый в память только для чтения. При открытии читается лишь заголовок;
+// записи декодируются по одной при первом обращении к ID (двоичный поиск по отсортированному индексу).
+// Формат: заголовок | записи | индекс фильмов (id, смещение, число лайков) | индекс пользователей (id, смещение, число друзей)
+public class MappedSnapshot {
+    static final int MAGIC = 0x464D534E;
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 40;
+    static final int FILM_INDEX_ENTRY = 20;
+    static final int USER_INDEX_ENTRY = 20;
+
+    private final MappedByteBuffer buffer;
+    private final long segment;
+    private final int filmCount;
+    private final int userCount;
+    private final int filmIndex;
+    private final int userIndex;
+
+    private MappedSnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("неверный заголовок снимка");
+        }
+        segment = buffer.getLong(8);
+        filmCount = buffer.getInt(16);
+        userCount = buffer.getInt(20);
+        long filmIndexOffset = buffer.getLong(24);
+        long userIndexOffset = buffer.getLong(32);
+        if (filmCount < 0 || userCount < 0
+                || filmIndexOffset + (long) filmCount * FILM_INDEX_ENTRY != userIndexOffset
+                || userIndexOffset + (long) userCount * USER_INDEX_ENTRY != buffer.capacity()) {
+            throw new IOException("повреждён индекс снимка");
+        }
+        filmIndex = (int) filmIndexOffset;
+        userIndex = (int) userIndexOffset;
+    }
+
+    public static MappedSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("снимок больше 2 ГБ не помещается в один MappedByteBuffer");
+            }
+            return new MappedSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public long segment() {
+        return segment;
+    }
+
+    public int filmCount() {
+        return filmCount;
+    }
+
+    public long filmId(int position) {
+        return buffer.getLong(filmIndex + position * FILM_INDEX_ENTRY);
+    }
+
+    public int filmLikes(int position) {
+        return buffer.getInt(filmIndex + position * FILM_INDEX_ENTRY + 16);
+    }
+
+    // Позиция первого фильма с ID больше id, filmCount(), если таких нет
+    public int filmPositionAfter(long id) {
+        return positionAfter(filmIndex, filmCount, FILM_INDEX_ENTRY, id);
+    }
+
+    public Film readFilm(long id) {
+        int position = search(filmIndex, filmCount, FILM_INDEX_ENTRY, id);
+        if (position < 0) {
+            return null;
+        }
+        try {
+            return JournalCodec.readFilm(recordAt(buffer.getLong(filmIndex + position * FILM_INDEX_ENTRY + 8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int userCount() {
+        return userCount;
+    }
+
+    public long userId(int position) {
+        return buffer.getLong(userIndex + position * USER_INDEX_ENTRY);
+    }
+
+    public int userFriends(int position) {
+        return buffer.getInt(userIndex + position * USER_INDEX_ENTRY + 16);
+    }
+
+    public int userPositionAfter(long id) {
+        return positionAfter(userIndex, userCount, USER_INDEX_ENTRY, id);
+    }
+
+    public User readUser(long id) {
+        int position = search(userIndex, userCount, USER_INDEX_ENTRY, id);
+        if (position < 0) {
+            return null;
+        }
+        try {
+            return JournalCodec.readUser(recordAt(buffer.getLong(userIndex + position * USER_INDEX_ENTRY + 8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int search(int index, int count, int entrySize, long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long current = buffer.getLong(index + middle * entrySize);
+            if (current < id) {
+                low = middle + 1;
+            } else if (current > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int positionAfter(int index, int count, int entrySize, long id) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getLong(index + middle * entrySize) <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private DataInput recordAt(long offset) {
+        ByteBuffer record = buffer.slice((int) offset, buffer.capacity() - (int) offset);
+        return new DataInputStream(new InputStream() {
+            @Override
+            public int read() {
+                return record.hasRemaining() ? record.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (!record.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, record.remaining());
+                record.get(bytes, offset, count);
+                return count;
+            }
+        });
+    }
+}
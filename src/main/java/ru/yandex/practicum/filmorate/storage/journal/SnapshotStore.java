@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Снимки snapshot-<сегмент>.bin: полное состояние хранилищ и номер первого сегмента журнала,
+// который нужно проиграть поверх снимка. Формат рассчитан на отображение в память, см. MappedSnapshot
+@Slf4j
+public class SnapshotStore {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public void write(long segment, Consumer<Consumer<Film>> films, Consumer<Consumer<User>> users) {
+        Path target = path(segment);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        List<IndexEntry> filmIndex = new ArrayList<>();
+        List<IndexEntry> userIndex = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.write(new byte[MappedSnapshot.HEADER_SIZE]);
+                films.accept(film -> {
+                    filmIndex.add(new IndexEntry(film.getId(), offset(out), film.getLikes().size()));
+                    writeEntry(() -> JournalCodec.writeFilm(out, film));
+                });
+                users.accept(user -> {
+                    userIndex.add(new IndexEntry(user.getId(), offset(out), user.getFriends().size()));
+                    writeEntry(() -> JournalCodec.writeUser(out, user));
+                });
+
+                long filmIndexOffset = offset(out);
+                filmIndex.sort(Comparator.comparingLong(IndexEntry::id));
+                for (IndexEntry entry : filmIndex) {
+                    out.writeLong(entry.id());
+                    out.writeLong(entry.offset());
+                    out.writeInt(entry.size());
+                }
+                long userIndexOffset = offset(out);
+                userIndex.sort(Comparator.comparingLong(IndexEntry::id));
+                for (IndexEntry entry : userIndex) {
+                    out.writeLong(entry.id());
+                    out.writeLong(entry.offset());
+                    out.writeInt(entry.size());
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(MappedSnapshot.HEADER_SIZE)
+                        .putInt(MappedSnapshot.MAGIC)
+                        .putInt(MappedSnapshot.VERSION)
+                        .putLong(segment)
+                        .putInt(filmIndex.size())
+                        .putInt(userIndex.size())
+                        .putLong(filmIndexOffset)
+                        .putLong(userIndexOffset)
+                        .flip();
+                file.getChannel().write(header, 0);
+                file.getChannel().force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            forceDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Открывает самый свежий целый снимок без чтения записей; номер сегмента, с которого продолжать журнал, —
+    // MappedSnapshot.segment()
+    public Optional<MappedSnapshot> openLatest() {
+        for (long segment : snapshots()) {
+            try {
+                MappedSnapshot snapshot = MappedSnapshot.open(path(segment));
+                if (snapshot.segment() != segment) {
+                    throw new IOException("номер сегмента не совпадает с именем файла");
+                }
+                log.info("Открыт снимок {}: фильмов {}, пользователей {}", path(segment), snapshot.filmCount(),
+                        snapshot.userCount());
+                return Optional.of(snapshot);
+            } catch (IOException e) {
+                log.warn("Снимок {} повреждён и пропущен: {}", path(segment), e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+    public void deleteOlderThan(long segment) {
+        for (long number : snapshots()) {
+            if (number < segment) {
+                try {
+                    Files.deleteIfExists(path(number));
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить снимок {}: {}", number, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<Long> snapshots() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("fsync каталога {} не поддерживается: {}", directory, e.getMessage());
+        }
+    }
+
+    private Path path(long segment) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    }
+
+    // DataOutputStream считает байты в int; снимок всё равно ограничен 2 ГБ одного MappedByteBuffer
+    private static long offset(DataOutputStream out) {
+        if (out.size() == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Снимок больше 2 ГБ не поддерживается");
+        }
+        return out.size();
+    }
+
+    private static void writeEntry(EntryWriter writer) {
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record IndexEntry(long id, long offset, int size) {
+    }
+
+    @FunctionalInterface
+    private interface EntryWriter {
+        void write() throws IOException;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+// Журнал изменений in-memory хранилищ. Запись вызывается под блокировкой сущности,
+// чтобы порядок в журнале совпадал с порядком применения; ожидание fsync - уже после её снятия
+public interface StorageJournal {
+
+    StorageJournal NOOP = new StorageJournal() {
+        @Override
+        public long filmSaved(Film film) {
+            return 0;
+        }
+
+        @Override
+        public long userSaved(User user) {
+            return 0;
+        }
+
+        @Override
+        public long likeChanged(long filmId, long userId, boolean added) {
+            return 0;
+        }
+
+        @Override
+        public long friendshipChanged(long userId, long friendId, boolean added) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+    };
+
+    long filmSaved(Film film);
+
+    long userSaved(User user);
+
+    long likeChanged(long filmId, long userId, boolean added);
+
+    long friendshipChanged(long userId, long friendId, boolean added);
+
+    void awaitDurable(long position);
+}
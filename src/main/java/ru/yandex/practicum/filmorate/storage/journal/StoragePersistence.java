@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Долговечность in-memory хранилищ: при старте отображает в память последний снимок и проигрывает хвост журнала,
+// затем подключает журнал к хранилищам и периодически делает новые снимки
+@Component
+@Profile("!jdbc")
+@ConditionalOnProperty(prefix = "filmorate.journal", name = "enabled", havingValue = "true")
+@Slf4j
+public class StoragePersistence {
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final JournalProperties properties;
+    private final WriteAheadLog journal;
+    private final SnapshotStore snapshots;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StoragePersistence(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                              JournalProperties properties) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.properties = properties;
+        this.journal = new WriteAheadLog(properties.getDirectory(), properties.getFsync(),
+                properties.getFsyncInterval());
+        this.snapshots = new SnapshotStore(properties.getDirectory());
+    }
+
+    @PostConstruct
+    public void recover() {
+        long started = System.nanoTime();
+        long firstSegment = 0;
+        Optional<MappedSnapshot> snapshot = snapshots.openLatest();
+        if (snapshot.isPresent()) {
+            filmStorage.attachSnapshot(snapshot.get());
+            userStorage.attachSnapshot(snapshot.get());
+            firstSegment = snapshot.get().segment();
+        }
+        long lastSegment = journal.replay(firstSegment, new Replayer());
+        journal.open(Math.max(firstSegment, lastSegment + 1));
+        filmStorage.setJournal(journal);
+        userStorage.setJournal(journal);
+        log.info("Хранилища восстановлены за {} мс", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        long period = properties.getSnapshotInterval().toMillis();
+        if (period > 0) {
+            scheduler.scheduleWithFixedDelay(this::snapshot, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void snapshot() {
+        try {
+            long segment = journal.roll();
+            snapshots.write(segment, filmStorage::forEachFilm, userStorage::forEachUser);
+            snapshots.deleteOlderThan(segment);
+            journal.deleteSegmentsBefore(segment);
+            log.info("Сохранён снимок хранилищ, журнал продолжается с сегмента {}", segment);
+        } catch (RuntimeException e) {
+            log.error("Не удалось сохранить снимок хранилищ: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        scheduler.shutdownNow();
+        filmStorage.setJournal(StorageJournal.NOOP);
+        userStorage.setJournal(StorageJournal.NOOP);
+        journal.close();
+    }
+
+    // Применяет записи журнала к хранилищам; повторное применение уже попавших в снимок записей безвредно
+    private class Replayer implements StorageJournal {
+        @Override
+        public long filmSaved(Film film) {
+            filmStorage.restoreFilm(film);
+            return 0;
+        }
+
+        @Override
+        public long userSaved(User user) {
+            userStorage.restoreUser(user);
+            return 0;
+        }
+
+        @Override
+        public long likeChanged(long filmId, long userId, boolean added) {
+            try {
+                if (added) {
+                    filmStorage.addLike(filmId, userId);
+                } else {
+                    filmStorage.removeLike(filmId, userId);
+                }
+            } catch (NotFoundException e) {
+                log.warn("Запись журнала о лайке пропущена: {}", e.getMessage());
+            }
+            return 0;
+        }
+
+        @Override
+        public long friendshipChanged(long userId, long friendId, boolean added) {
+            try {
+                if (added) {
+                    userStorage.addFriend(userId, friendId);
+                } else {
+                    userStorage.removeFriend(userId, friendId);
+                }
+            } catch (NotFoundException e) {
+                log.warn("Запись журнала о дружбе пропущена: {}", e.getMessage());
+            }
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Журнал упреждающей записи из сегментов wal-<номер>.log.
+// Запись: [int длина][int crc32][байт типа + данные]. Хвост, оборванный при падении, отбрасывается при чтении
+@Slf4j
+public class WriteAheadLog implements StorageJournal, Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte FILM_SAVED = 1;
+    private static final byte USER_SAVED = 2;
+    private static final byte LIKE_ADDED = 3;
+    private static final byte LIKE_REMOVED = 4;
+    private static final byte FRIENDSHIP_ADDED = 5;
+    private static final byte FRIENDSHIP_REMOVED = 6;
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final Duration fsyncInterval;
+    // порядок захвата: syncLock -> appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private ScheduledExecutorService flusher;
+    private FileChannel channel;
+    private long segment;
+    private volatile long appended;
+    private volatile long durable;
+
+    public WriteAheadLog(Path directory, FsyncPolicy policy, Duration fsyncInterval) {
+        this.directory = directory;
+        this.policy = policy;
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    // Открывает новый сегмент для дописывания; вызывается после восстановления
+    public void open(long firstSegment) {
+        appendLock.lock();
+        try {
+            Files.createDirectories(directory);
+            segment = firstSegment;
+            channel = openSegment(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+        if (policy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1, fsyncInterval.toMillis());
+            flusher.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.MILLISECONDS);
+        }
+        log.info("Журнал открыт: {}, сегмент {}, fsync={}", directory, segment, policy);
+    }
+
+    @Override
+    public long filmSaved(Film film) {
+        return append(FILM_SAVED, out -> JournalCodec.writeFilm(out, film));
+    }
+
+    @Override
+    public long userSaved(User user) {
+        return append(USER_SAVED, out -> JournalCodec.writeUser(out, user));
+    }
+
+    @Override
+    public long likeChanged(long filmId, long userId, boolean added) {
+        return append(added ? LIKE_ADDED : LIKE_REMOVED, out -> {
+            out.writeLong(filmId);
+            out.writeLong(userId);
+        });
+    }
+
+    @Override
+    public long friendshipChanged(long userId, long friendId, boolean added) {
+        return append(added ? FRIENDSHIP_ADDED : FRIENDSHIP_REMOVED, out -> {
+            out.writeLong(userId);
+            out.writeLong(friendId);
+        });
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (policy == FsyncPolicy.ALWAYS && position > durable) {
+            sync(position);
+        }
+    }
+
+    public void flush() {
+        sync(appended);
+    }
+
+    // Переключает запись на новый сегмент и возвращает его номер: всё, что не попадёт в снимок, будет в нём
+    public long roll() {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+            durable = appended;
+            segment++;
+            channel = openSegment(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    // Проигрывает все записи начиная с сегмента fromSegment; возвращает номер последнего прочитанного сегмента
+    public long replay(long fromSegment, StorageJournal target) {
+        long last = fromSegment - 1;
+        List<Long> segments = segmentsFrom(fromSegment);
+        for (int i = 0; i < segments.size(); i++) {
+            last = segments.get(i);
+            long records = replaySegment(segmentPath(last), target, i == segments.size() - 1);
+            log.info("Из сегмента {} журнала применено записей: {}", last, records);
+        }
+        return last;
+    }
+
+    public void deleteSegmentsBefore(long firstKept) {
+        for (long number : segmentsFrom(0)) {
+            if (number < firstKept) {
+                try {
+                    Files.deleteIfExists(segmentPath(number));
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить сегмент журнала {}: {}", number, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                durable = appended;
+            }
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    private long append(byte type, RecordWriter writer) {
+        ByteBuffer record = encode(type, writer);
+        appendLock.lock();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            appended++;
+            return appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Group commit: поток, дождавшийся syncLock, сбрасывает всё записанное на момент захвата,
+    // и остальные ожидающие обнаруживают, что их позиция уже сохранена
+    private void sync(long position) {
+        syncLock.lock();
+        try {
+            if (durable >= position) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            appendLock.lock();
+            try {
+                target = appended;
+                current = channel;
+            } finally {
+                appendLock.unlock();
+            }
+            current.force(false);
+            durable = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private static ByteBuffer encode(byte type, RecordWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            writer.write(out);
+            ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), HEADER_SIZE, record.capacity() - HEADER_SIZE);
+            record.putInt(0, record.capacity() - HEADER_SIZE);
+            record.putInt(4, (int) crc.getValue());
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long replaySegment(Path path, StorageJournal target, boolean lastSegment) {
+        long records = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] payload = readRecord(in);
+                if (payload == null) {
+                    break;
+                }
+                apply(payload, target);
+                validLength += HEADER_SIZE + payload.length;
+                records++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            if (validLength < Files.size(path)) {
+                if (!lastSegment) {
+                    throw new IllegalStateException("Повреждён сегмент журнала " + path + " на позиции " + validLength);
+                }
+                log.warn("Отброшен незавершённый хвост журнала {}: {} байт", path, Files.size(path) - validLength);
+                try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    file.truncate(validLength);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        byte[] header = in.readNBytes(HEADER_SIZE);
+        if (header.length < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        int length = headerBuffer.getInt();
+        int checksum = headerBuffer.getInt();
+        if (length <= 0) {
+            return null;
+        }
+        byte[] payload = in.readNBytes(length);
+        if (payload.length < length) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum ? payload : null;
+    }
+
+    private static void apply(byte[] payload, StorageJournal target) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        switch (type) {
+            case FILM_SAVED -> target.filmSaved(JournalCodec.readFilm(in));
+            case USER_SAVED -> target.userSaved(JournalCodec.readUser(in));
+            case LIKE_ADDED, LIKE_REMOVED -> target.likeChanged(in.readLong(), in.readLong(), type == LIKE_ADDED);
+            case FRIENDSHIP_ADDED, FRIENDSHIP_REMOVED ->
+                    target.friendshipChanged(in.readLong(), in.readLong(), type == FRIENDSHIP_ADDED);
+            default -> throw new IOException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    private List<Long> segmentsFrom(long first) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .filter(number -> number >= first)
+                    .sorted()
+                    .forEach(numbers::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return numbers;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+}
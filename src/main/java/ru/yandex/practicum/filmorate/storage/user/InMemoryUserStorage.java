@@ -1,58 +1,569 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.ChangeAction;
+import ru.yandex.practicum.filmorate.model.FriendshipChange;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageMetrics;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.journal.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntCounter;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
+// Пользователь в users — неизменяемая версия, как фильм в InMemoryFilmStorage: дружба публикует новые версии
+// обоих пользователей под их блокировками, чтение идёт без блокировок
 @Component
+@Profile("!jdbc")
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
-    private long idCounter = 1;
+    // упорядочено по ID, чтобы страница стоила O(log n + limit)
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    private final StripedLocks locks = new StripedLocks(256);
+    private final AtomicLong idCounter = new AtomicLong(1);
+    // счётчики для метрик: size() у ConcurrentSkipListMap обходит всю карту; связи считаются с обеих сторон
+    private final LongAdder userCount = new LongAdder();
+    private final LongAdder friendLinks = new LongAdder();
+    private final Timer getTimer;
+    private final Timer getByIdsTimer;
+    private final Timer getAllTimer;
+    private final Timer pageTimer;
+    private final Timer friendsPageTimer;
+    private final Timer friendIdsTimer;
+    private final Timer createTimer;
+    private final Timer createBatchTimer;
+    private final Timer updateTimer;
+    private final Timer addFriendTimer;
+    private final Timer removeFriendTimer;
+    private final Timer commonFriendsTimer;
+    private final Timer recommendTimer;
+    private final Timer friendshipBatchTimer;
+    private volatile StorageJournal journal = StorageJournal.NOOP;
+    // пользователи из снимка, ещё не перенесённые в users; сбрасывается, когда перенесены все
+    private volatile MappedSnapshot snapshot;
+
+    public InMemoryUserStorage() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public InMemoryUserStorage(MeterRegistry meterRegistry) {
+        getTimer = StorageMetrics.timer(meterRegistry, "users", "getById");
+        getByIdsTimer = StorageMetrics.timer(meterRegistry, "users", "getByIds");
+        getAllTimer = StorageMetrics.timer(meterRegistry, "users", "getAll");
+        pageTimer = StorageMetrics.timer(meterRegistry, "users", "getPage");
+        friendsPageTimer = StorageMetrics.timer(meterRegistry, "users", "getFriendsPage");
+        friendIdsTimer = StorageMetrics.timer(meterRegistry, "users", "getFriendIds");
+        createTimer = StorageMetrics.timer(meterRegistry, "users", "create");
+        createBatchTimer = StorageMetrics.timer(meterRegistry, "users", "createBatch");
+        updateTimer = StorageMetrics.timer(meterRegistry, "users", "update");
+        addFriendTimer = StorageMetrics.timer(meterRegistry, "users", "addFriend");
+        removeFriendTimer = StorageMetrics.timer(meterRegistry, "users", "removeFriend");
+        commonFriendsTimer = StorageMetrics.timer(meterRegistry, "users", "getCommonFriends");
+        recommendTimer = StorageMetrics.timer(meterRegistry, "users", "recommendFriends");
+        friendshipBatchTimer = StorageMetrics.timer(meterRegistry, "users", "applyFriendshipChanges");
+    }
+
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    // Подключает отображённый в память снимок: пользователи декодируются при первом обращении.
+    // Вызывается при старте до проигрывания журнала
+    public void attachSnapshot(MappedSnapshot snapshot) {
+        if (snapshot.userCount() > 0) {
+            idCounter.accumulateAndGet(snapshot.userId(snapshot.userCount() - 1) + 1, Math::max);
+        }
+        for (int i = 0; i < snapshot.userCount(); i++) {
+            friendLinks.add(snapshot.userFriends(i));
+        }
+        userCount.add(snapshot.userCount());
+        this.snapshot = snapshot;
+    }
 
     @Override
     public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+        long started = System.nanoTime();
+        try {
+            materializeAll();
+            return new ArrayList<>(users.values());
+        } finally {
+            getAllTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
     }
 
     @Override
     public User getUserById(long id) {
-        log.trace("Поиск пользователя по ID: {}", id);
-        if (!users.containsKey(id)) {
-            log.error("Пользователь с ID {} не найден", id);
-            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        long started = System.nanoTime();
+        try {
+            return require(id);
+        } finally {
+            getTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        long started = System.nanoTime();
+        try {
+            List<User> result = new ArrayList<>(ids.size());
+            if (ids instanceof LongHashSet set) {
+                set.forEachLong(id -> addIfPresent(result, id));
+            } else if (ids instanceof PersistentLongSet set) {
+                set.forEachLong(id -> addIfPresent(result, id));
+            } else {
+                ids.forEach(id -> addIfPresent(result, id));
+            }
+            return result;
+        } finally {
+            getByIdsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Set<Long> getExistingIds(Collection<Long> ids) {
+        LongHashSet existing = new LongHashSet(ids.size());
+        for (Long id : ids) {
+            if (find(id) != null) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    // Как в InMemoryFilmStorage.getFilmsPage: ID из users и из индекса снимка сливаются по возрастанию,
+    // декодируются только пользователи страницы
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            MappedSnapshot source = snapshot;
+            int position = source == null ? 0 : source.userPositionAfter(afterId);
+            int count = source == null ? 0 : source.userCount();
+            Iterator<Long> loaded = users.tailMap(afterId, false).keySet().iterator();
+            Long nextLoaded = loaded.hasNext() ? loaded.next() : null;
+            List<User> page = new ArrayList<>();
+            while (page.size() < limit && (nextLoaded != null || position < count)) {
+                long id;
+                if (position < count && (nextLoaded == null || source.userId(position) <= nextLoaded)) {
+                    id = source.userId(position++);
+                    if (nextLoaded != null && nextLoaded == id) {
+                        nextLoaded = loaded.hasNext() ? loaded.next() : null;
+                    }
+                } else {
+                    id = nextLoaded;
+                    nextLoaded = loaded.hasNext() ? loaded.next() : null;
+                }
+                addIfPresent(page, id);
+            }
+            return page;
+        } finally {
+            pageTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Друзья хранятся в хеш-множестве без порядка, поэтому страница — один проход по нему с отбором limit наименьших ID
+    @Override
+    public List<User> getFriendsPage(long userId, long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            long[] friendIds = friendsOf(require(userId)).smallestAfter(afterId, limit);
+
+            List<User> page = new ArrayList<>(friendIds.length);
+            for (long id : friendIds) {
+                addIfPresent(page, id);
+            }
+            return page;
+        } finally {
+            friendsPageTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long[] getFriendIds(long userId, int limit) {
+        long started = System.nanoTime();
+        try {
+            PersistentLongSet friends = friendsOf(require(userId));
+            long[] ids = new long[Math.min(limit, friends.size())];
+            int[] count = new int[1];
+            friends.forEachLong(id -> ids[count[0]++] = id, ids.length);
+            return ids;
+        } finally {
+            friendIdsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
-        log.debug("Найден пользователь ID: {}", id);
-        return users.get(id);
     }
 
     @Override
     public User createUser(User user) {
-        user.setId(idCounter++);
-        users.put(user.getId(), user);
-        log.info("Создан новый пользователь: ID={}, Email={}", user.getId(), user.getEmail());
-        return user;
+        long started = System.nanoTime();
+        try {
+            user.setId(idCounter.getAndIncrement());
+            User published = version(user);
+            long position;
+            Lock lock = locks.forId(published.getId());
+            lock.lock();
+            try {
+                users.put(published.getId(), published);
+                userCount.increment();
+                friendLinks.add(published.getFriends().size());
+                position = journal.userSaved(published);
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+            log.debug("Создан новый пользователь: ID={}, Email={}", published.getId(), published.getEmail());
+            return published;
+        } finally {
+            createTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // ID выделяются одним блоком подряд, ожидание fsync — одно на весь список
+    @Override
+    public List<User> createUsers(List<User> newUsers) {
+        long started = System.nanoTime();
+        try {
+            long id = idCounter.getAndAdd(newUsers.size());
+            long position = 0;
+            List<User> created = new ArrayList<>(newUsers.size());
+            for (User user : newUsers) {
+                user.setId(id++);
+                User published = version(user);
+                Lock lock = locks.forId(published.getId());
+                lock.lock();
+                try {
+                    users.put(published.getId(), published);
+                    friendLinks.add(published.getFriends().size());
+                    position = journal.userSaved(published);
+                } finally {
+                    lock.unlock();
+                }
+                created.add(published);
+            }
+            userCount.add(newUsers.size());
+            journal.awaitDurable(position);
+            return created;
+        } finally {
+            createBatchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
     }
 
     @Override
     public User updateUser(User user) {
-        log.debug("Начало обновления пользователя ID: {}", user.getId());
-        if (!users.containsKey(user.getId())) {
-            log.error("Попытка обновления несуществующего пользователя ID: {}", user.getId());
-            throw new NotFoundException("Пользователь с id=" + user.getId() + " не найден");
+        long started = System.nanoTime();
+        try {
+            log.debug("Начало обновления пользователя ID: {}", user.getId());
+            User published = version(user);
+            long position;
+            Lock lock = locks.forId(published.getId());
+            lock.lock();
+            try {
+                User previous = find(published.getId());
+                if (previous == null) {
+                    throw new NotFoundException("Пользователь с id=" + published.getId() + " не найден");
+                }
+                users.put(published.getId(), published);
+                friendLinks.add(published.getFriends().size() - previous.getFriends().size());
+                position = journal.userSaved(published);
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+            log.debug("Обновлен пользователь: ID={}", published.getId());
+            return published;
+        } finally {
+            updateTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean addFriend(long userId, long friendId) {
+        long started = System.nanoTime();
+        try {
+            long position;
+            locks.lockBoth(userId, friendId);
+            try {
+                User user = require(userId);
+                User friend = require(friendId);
+                PersistentLongSet userFriends = friendsOf(user).plus(friendId);
+                if (userFriends == user.getFriends()) {
+                    return false;
+                }
+                users.put(userId, version(user, userFriends));
+                friendLinks.increment();
+                PersistentLongSet friendFriends = friendsOf(friend).plus(userId);
+                if (friendFriends != friend.getFriends()) {
+                    users.put(friendId, version(friend, friendFriends));
+                    friendLinks.increment();
+                }
+                position = journal.friendshipChanged(userId, friendId, true);
+            } finally {
+                locks.unlockBoth(userId, friendId);
+            }
+            journal.awaitDurable(position);
+            return true;
+        } finally {
+            addFriendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean removeFriend(long userId, long friendId) {
+        long started = System.nanoTime();
+        try {
+            long position;
+            locks.lockBoth(userId, friendId);
+            try {
+                User user = require(userId);
+                User friend = require(friendId);
+                PersistentLongSet userFriends = friendsOf(user).minus(friendId);
+                PersistentLongSet friendFriends = friendsOf(friend).minus(userId);
+                if (userFriends == user.getFriends() && friendFriends == friend.getFriends()) {
+                    return false;
+                }
+                if (userFriends != user.getFriends()) {
+                    users.put(userId, version(user, userFriends));
+                    friendLinks.decrement();
+                }
+                if (friendFriends != friend.getFriends()) {
+                    users.put(friendId, version(friend, friendFriends));
+                    friendLinks.decrement();
+                }
+                position = journal.friendshipChanged(userId, friendId, false);
+            } finally {
+                locks.unlockBoth(userId, friendId);
+            }
+            journal.awaitDurable(position);
+            return true;
+        } finally {
+            removeFriendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
-        users.put(user.getId(), user);
-        log.info("Обновлен пользователь: ID={}", user.getId());
-        return user;
+    }
+
+    // Каждая пара блокируется отдельно, как в addFriend; ожидание fsync — одно на весь пакет
+    @Override
+    public List<BatchItemStatus> applyFriendshipChanges(List<FriendshipChange> changes) {
+        long started = System.nanoTime();
+        try {
+            List<BatchItemStatus> statuses = new ArrayList<>(changes.size());
+            long position = 0;
+            for (FriendshipChange change : changes) {
+                long userId = change.getUserId();
+                long friendId = change.getFriendId();
+                boolean add = change.getAction() == ChangeAction.ADD;
+                locks.lockBoth(userId, friendId);
+                try {
+                    User user = find(userId);
+                    User friend = find(friendId);
+                    if (user == null || friend == null) {
+                        statuses.add(BatchItemStatus.NOT_FOUND);
+                        continue;
+                    }
+                    PersistentLongSet userFriends = add ? friendsOf(user).plus(friendId)
+                            : friendsOf(user).minus(friendId);
+                    PersistentLongSet friendFriends = add ? friendsOf(friend).plus(userId)
+                            : friendsOf(friend).minus(userId);
+                    int delta = userFriends.size() - user.getFriends().size()
+                            + friendFriends.size() - friend.getFriends().size();
+                    if (delta == 0) {
+                        statuses.add(BatchItemStatus.UNCHANGED);
+                        continue;
+                    }
+                    if (userFriends != user.getFriends()) {
+                        users.put(userId, version(user, userFriends));
+                    }
+                    if (friendFriends != friend.getFriends()) {
+                        users.put(friendId, version(friend, friendFriends));
+                    }
+                    friendLinks.add(delta);
+                    position = journal.friendshipChanged(userId, friendId, add);
+                    statuses.add(BatchItemStatus.APPLIED);
+                } finally {
+                    locks.unlockBoth(userId, friendId);
+                }
+            }
+            journal.awaitDurable(position);
+            return statuses;
+        } finally {
+            friendshipBatchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(long userId, long otherUserId) {
+        long started = System.nanoTime();
+        try {
+            long[] commonIds = PersistentLongSet.intersect(friendsOf(require(userId)),
+                    friendsOf(require(otherUserId)));
+
+            List<User> result = new ArrayList<>(commonIds.length);
+            for (long id : commonIds) {
+                addIfPresent(result, id);
+            }
+            return result;
+        } finally {
+            commonFriendsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Друзья пользователя и каждого друга читаются из опубликованных версий без блокировок,
+    // не больше maxFanOut у каждого: знакомство через узел с миллионом друзей почти ничего не говорит,
+    // а полный его обход стоил бы больше всего остального расчёта. Счётчики — примитивная хеш-таблица
+    @Override
+    public Map<Long, Integer> recommendFriends(long userId, int limit, int maxFanOut) {
+        long started = System.nanoTime();
+        try {
+            PersistentLongSet friends = friendsOf(require(userId));
+            LongIntCounter mutual = new LongIntCounter();
+            friends.forEachLong(friendId -> {
+                User friend = find(friendId);
+                if (friend != null) {
+                    friendsOf(friend).forEachLong(candidate -> {
+                        if (candidate != userId && !friends.contains(candidate)) {
+                            mutual.increment(candidate);
+                        }
+                    }, maxFanOut);
+                }
+            }, maxFanOut);
+
+            Map<Long, Integer> result = new LinkedHashMap<>();
+            for (long candidate : mutual.top(limit)) {
+                result.put(candidate, mutual.get(candidate));
+            }
+            return result;
+        } finally {
+            recommendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long countUsers() {
+        return userCount.sum();
+    }
+
+    @Override
+    public long countFriendships() {
+        return friendLinks.sum() / 2;
+    }
+
+    // Восстановление из снимка или журнала: пользователь кладётся с его собственным ID и без записи в журнал
+    public void restoreUser(User user) {
+        Lock lock = locks.forId(user.getId());
+        lock.lock();
+        try {
+            User previous = find(user.getId());
+            if (previous == null) {
+                userCount.increment();
+            } else {
+                friendLinks.add(-previous.getFriends().size());
+            }
+            User published = version(user);
+            users.put(published.getId(), published);
+            friendLinks.add(published.getFriends().size());
+            idCounter.accumulateAndGet(published.getId() + 1, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Версии неизменяемы, поэтому потребитель получает их без копий и блокировок
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        materializeAll();
+        users.values().forEach(action);
     }
 
     @Override
     public void clear() {
+        snapshot = null;
         users.clear();
-        idCounter = 1;
+        idCounter.set(1);
+        userCount.reset();
+        friendLinks.reset();
         log.info("Хранилище пользователей очищено");
     }
+
+    private User require(long id) {
+        User user = find(id);
+        if (user == null) {
+            log.debug("Пользователь с ID {} не найден", id);
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        }
+        return user;
+    }
+
+    private User find(long id) {
+        User user = users.get(id);
+        MappedSnapshot source = snapshot;
+        if (user != null || source == null) {
+            return user;
+        }
+        Lock lock = locks.forId(id);
+        lock.lock();
+        try {
+            user = users.get(id);
+            if (user == null && snapshot != null) {
+                user = source.readUser(id);
+                if (user != null) {
+                    user = version(user);
+                    users.put(id, user);
+                }
+            }
+            return user;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Собственная копия присланного пользователя: дальнейшие изменения объекта вызывающим хранилище не заденут
+    private static User version(User user) {
+        return version(user, PersistentLongSet.from(user.getFriends()));
+    }
+
+    private static User version(User user, PersistentLongSet friends) {
+        return new PublishedUser(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(),
+                friends);
+    }
+
+    // В users лежат только версии, собранные через version
+    private static PersistentLongSet friendsOf(User user) {
+        return (PersistentLongSet) user.getFriends();
+    }
+
+    private void materializeAll() {
+        MappedSnapshot source = snapshot;
+        if (source == null) {
+            return;
+        }
+        for (int i = 0; i < source.userCount(); i++) {
+            find(source.userId(i));
+        }
+        snapshot = null;
+        log.debug("Все пользователи снимка загружены в память: {}", source.userCount());
+    }
+
+    private void addIfPresent(List<User> result, long id) {
+        User user = find(id);
+        if (user != null) {
+            result.add(user);
+        }
+    }
 }
@@ -0,0 +1,504 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.ChangeAction;
+import ru.yandex.practicum.filmorate.model.FriendshipChange;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageMetrics;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Repository
+@Profile("jdbc")
+@Slf4j
+public class JdbcUserStorage implements UserStorage {
+    private static final int IN_CHUNK_SIZE = 1000;
+    private static final RowMapper<User> USER_MAPPER = (rs, rowNum) -> new User(
+            rs.getLong("id"),
+            rs.getString("email"),
+            rs.getString("login"),
+            rs.getString("name"),
+            rs.getObject("birthday", LocalDate.class),
+            new LongHashSet());
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final SimpleJdbcInsert userInsert;
+    private final Timer getAllTimer;
+    private final Timer getTimer;
+    private final Timer getByIdsTimer;
+    private final Timer pageTimer;
+    private final Timer friendsPageTimer;
+    private final Timer friendIdsTimer;
+    private final Timer createTimer;
+    private final Timer createBatchTimer;
+    private final Timer updateTimer;
+    private final Timer addFriendTimer;
+    private final Timer removeFriendTimer;
+    private final Timer commonFriendsTimer;
+    private final Timer recommendTimer;
+    private final Timer friendshipBatchTimer;
+
+    public JdbcUserStorage(JdbcTemplate jdbc, NamedParameterJdbcTemplate namedJdbc, MeterRegistry meterRegistry) {
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        getAllTimer = StorageMetrics.timer(meterRegistry, "users", "getAll");
+        getTimer = StorageMetrics.timer(meterRegistry, "users", "getById");
+        getByIdsTimer = StorageMetrics.timer(meterRegistry, "users", "getByIds");
+        pageTimer = StorageMetrics.timer(meterRegistry, "users", "getPage");
+        friendsPageTimer = StorageMetrics.timer(meterRegistry, "users", "getFriendsPage");
+        friendIdsTimer = StorageMetrics.timer(meterRegistry, "users", "getFriendIds");
+        createTimer = StorageMetrics.timer(meterRegistry, "users", "create");
+        createBatchTimer = StorageMetrics.timer(meterRegistry, "users", "createBatch");
+        updateTimer = StorageMetrics.timer(meterRegistry, "users", "update");
+        addFriendTimer = StorageMetrics.timer(meterRegistry, "users", "addFriend");
+        removeFriendTimer = StorageMetrics.timer(meterRegistry, "users", "removeFriend");
+        commonFriendsTimer = StorageMetrics.timer(meterRegistry, "users", "getCommonFriends");
+        recommendTimer = StorageMetrics.timer(meterRegistry, "users", "recommendFriends");
+        friendshipBatchTimer = StorageMetrics.timer(meterRegistry, "users", "applyFriendshipChanges");
+        this.userInsert = new SimpleJdbcInsert(jdbc)
+                .withTableName("users")
+                .usingColumns("email", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("id");
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        long started = System.nanoTime();
+        try {
+            List<User> users = jdbc.query("SELECT * FROM users ORDER BY id", USER_MAPPER);
+            Map<Long, User> byId = new HashMap<>();
+            users.forEach(user -> byId.put(user.getId(), user));
+            jdbc.query("SELECT user_id, friend_id FROM friendships", rs -> {
+                User user = byId.get(rs.getLong("user_id"));
+                if (user != null) {
+                    user.getFriends().add(rs.getLong("friend_id"));
+                }
+            });
+            return users;
+        } finally {
+            getAllTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public User getUserById(long id) {
+        long started = System.nanoTime();
+        try {
+            List<User> users = jdbc.query("SELECT * FROM users WHERE id = ?", USER_MAPPER, id);
+            if (users.isEmpty()) {
+                log.debug("Пользователь с ID {} не найден", id);
+                throw new NotFoundException("Пользователь с id=" + id + " не найден");
+            }
+            User user = users.get(0);
+            jdbc.query("SELECT friend_id FROM friendships WHERE user_id = ?",
+                    rs -> {
+                        user.getFriends().add(rs.getLong("friend_id"));
+                    }, id);
+            return user;
+        } finally {
+            getTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        long started = System.nanoTime();
+        try {
+            Map<Long, User> byId = new HashMap<>();
+            for (List<Long> chunk : chunks(ids)) {
+                namedJdbc.query("SELECT * FROM users WHERE id IN (:ids)", Map.of("ids", chunk), USER_MAPPER)
+                        .forEach(user -> byId.put(user.getId(), user));
+            }
+            loadFriends(byId);
+
+            List<User> result = new ArrayList<>(byId.size());
+            for (Long id : ids) {
+                User user = byId.get(id);
+                if (user != null) {
+                    result.add(user);
+                }
+            }
+            return result;
+        } finally {
+            getByIdsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Set<Long> getExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (List<Long> chunk : chunks(new HashSet<>(ids))) {
+            existing.addAll(namedJdbc.queryForList("SELECT id FROM users WHERE id IN (:ids)", Map.of("ids", chunk),
+                    Long.class));
+        }
+        return existing;
+    }
+
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            List<User> users = jdbc.query("SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?", USER_MAPPER,
+                    afterId, limit);
+            Map<Long, User> byId = new HashMap<>();
+            users.forEach(user -> byId.put(user.getId(), user));
+            loadFriends(byId);
+            return users;
+        } finally {
+            pageTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> getFriendsPage(long userId, long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            requireUser(userId);
+            List<User> users = jdbc.query("SELECT u.* FROM friendships f JOIN users u ON u.id = f.friend_id "
+                            + "WHERE f.user_id = ? AND f.friend_id > ? ORDER BY f.friend_id LIMIT ?",
+                    USER_MAPPER, userId, afterId, limit);
+            Map<Long, User> byId = new HashMap<>();
+            users.forEach(user -> byId.put(user.getId(), user));
+            loadFriends(byId);
+            return users;
+        } finally {
+            friendsPageTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long[] getFriendIds(long userId, int limit) {
+        long started = System.nanoTime();
+        try {
+            requireUser(userId);
+            return jdbc.queryForList("SELECT friend_id FROM friendships WHERE user_id = ? LIMIT ?", Long.class,
+                    userId, limit).stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            friendIdsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        List<User> chunk = getUsersPage(0, IN_CHUNK_SIZE);
+        while (!chunk.isEmpty()) {
+            chunk.forEach(action);
+            chunk = getUsersPage(chunk.get(chunk.size() - 1).getId(), IN_CHUNK_SIZE);
+        }
+    }
+
+    @Override
+    @Transactional
+    public User createUser(User user) {
+        long started = System.nanoTime();
+        try {
+            Map<String, Object> values = new HashMap<>();
+            values.put("email", user.getEmail());
+            values.put("login", user.getLogin());
+            values.put("name", user.getName());
+            values.put("birthday", user.getBirthday());
+            user.setId(userInsert.executeAndReturnKey(values).longValue());
+            insertFriends(user);
+            log.debug("Создан новый пользователь: ID={}, Email={}", user.getId(), user.getEmail());
+            return user;
+        } finally {
+            createTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Одна пакетная вставка; ID выдаёт identity-столбец, они возвращаются ключами пакета в порядке строк
+    @Override
+    @Transactional
+    public List<User> createUsers(List<User> users) {
+        long started = System.nanoTime();
+        try {
+            SqlParameterSource[] rows = new SqlParameterSource[users.size()];
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                rows[i] = new MapSqlParameterSource()
+                        .addValue("email", user.getEmail())
+                        .addValue("login", user.getLogin())
+                        .addValue("name", user.getName())
+                        .addValue("birthday", user.getBirthday());
+            }
+            KeyHolder keys = new GeneratedKeyHolder();
+            namedJdbc.batchUpdate("INSERT INTO users (email, login, name, birthday) "
+                    + "VALUES (:email, :login, :name, :birthday)", rows, keys, new String[]{"id"});
+            List<Map<String, Object>> ids = keys.getKeyList();
+            for (int i = 0; i < users.size(); i++) {
+                users.get(i).setId(((Number) ids.get(i).get("id")).longValue());
+                insertFriends(users.get(i));
+            }
+            return users;
+        } finally {
+            createBatchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    @Transactional
+    public User updateUser(User user) {
+        long started = System.nanoTime();
+        try {
+            log.debug("Начало обновления пользователя ID: {}", user.getId());
+            int updated = jdbc.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?",
+                    user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), user.getId());
+            if (updated == 0) {
+                throw new NotFoundException("Пользователь с id=" + user.getId() + " не найден");
+            }
+            jdbc.update("DELETE FROM friendships WHERE user_id = ?", user.getId());
+            insertFriends(user);
+            log.debug("Обновлен пользователь: ID={}", user.getId());
+            return user;
+        } finally {
+            updateTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean addFriend(long userId, long friendId) {
+        long started = System.nanoTime();
+        try {
+            lockUsers(userId, friendId);
+            // дубликат по первичному ключу — связь уже есть, как у лайков
+            try {
+                jdbc.update("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", userId, friendId);
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+            try {
+                jdbc.update("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", friendId, userId);
+            } catch (DuplicateKeyException e) {
+                // обратная связь уже есть: друг добавил пользователя раньше
+            }
+            return true;
+        } finally {
+            addFriendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean removeFriend(long userId, long friendId) {
+        long started = System.nanoTime();
+        try {
+            lockUsers(userId, friendId);
+            int deleted = jdbc.update("DELETE FROM friendships WHERE user_id = ? AND friend_id = ?", userId, friendId)
+                    + jdbc.update("DELETE FROM friendships WHERE user_id = ? AND friend_id = ?", friendId, userId);
+            return deleted > 0;
+        } finally {
+            removeFriendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Как и для лайков: пакет проигрывается в памяти поверх существующих связей, в базу уходит итоговая разница.
+    // Строки пользователей блокируются по возрастанию ID до чтения связей, как и в addFriend/removeFriend
+    @Override
+    @Transactional
+    public List<BatchItemStatus> applyFriendshipChanges(List<FriendshipChange> changes) {
+        long started = System.nanoTime();
+        try {
+            Set<Long> ids = new HashSet<>();
+            changes.forEach(change -> {
+                ids.add(change.getUserId());
+                ids.add(change.getFriendId());
+            });
+            Set<Long> existingUsers = new HashSet<>();
+            for (List<Long> chunk : chunks(new TreeSet<>(ids))) {
+                existingUsers.addAll(namedJdbc.queryForList("SELECT id FROM users WHERE id IN (:ids) ORDER BY id "
+                        + "FOR UPDATE", Map.of("ids", chunk), Long.class));
+            }
+            Set<FriendKey> initial = new HashSet<>();
+            for (List<Long> users : chunks(existingUsers)) {
+                for (List<Long> friends : chunks(existingUsers)) {
+                    namedJdbc.query("SELECT user_id, friend_id FROM friendships "
+                                    + "WHERE user_id IN (:users) AND friend_id IN (:friends)",
+                            Map.of("users", users, "friends", friends),
+                            rs -> {
+                                initial.add(new FriendKey(rs.getLong("user_id"), rs.getLong("friend_id")));
+                            });
+                }
+            }
+
+            List<BatchItemStatus> statuses = new ArrayList<>(changes.size());
+            Set<FriendKey> linked = new HashSet<>(initial);
+            for (FriendshipChange change : changes) {
+                if (!existingUsers.contains(change.getUserId()) || !existingUsers.contains(change.getFriendId())) {
+                    statuses.add(BatchItemStatus.NOT_FOUND);
+                    continue;
+                }
+                FriendKey forward = new FriendKey(change.getUserId(), change.getFriendId());
+                FriendKey backward = new FriendKey(change.getFriendId(), change.getUserId());
+                boolean changed;
+                if (change.getAction() == ChangeAction.ADD) {
+                    changed = linked.add(forward) | linked.add(backward);
+                } else {
+                    changed = linked.remove(forward) | linked.remove(backward);
+                }
+                statuses.add(changed ? BatchItemStatus.APPLIED : BatchItemStatus.UNCHANGED);
+            }
+
+            List<Object[]> inserts = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            for (FriendKey key : linked) {
+                if (!initial.contains(key)) {
+                    inserts.add(new Object[]{key.userId(), key.friendId()});
+                }
+            }
+            for (FriendKey key : initial) {
+                if (!linked.contains(key)) {
+                    deletes.add(new Object[]{key.userId(), key.friendId()});
+                }
+            }
+            jdbc.batchUpdate("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", inserts);
+            jdbc.batchUpdate("DELETE FROM friendships WHERE user_id = ? AND friend_id = ?", deletes);
+            return statuses;
+        } finally {
+            friendshipBatchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(long userId, long otherUserId) {
+        long started = System.nanoTime();
+        try {
+            requireUser(userId);
+            requireUser(otherUserId);
+            List<User> users = jdbc.query("SELECT u.* FROM friendships f1 "
+                            + "JOIN friendships f2 ON f2.friend_id = f1.friend_id AND f2.user_id = ? "
+                            + "JOIN users u ON u.id = f1.friend_id "
+                            + "WHERE f1.user_id = ?",
+                    USER_MAPPER, otherUserId, userId);
+            Map<Long, User> byId = new HashMap<>();
+            users.forEach(user -> byId.put(user.getId(), user));
+            loadFriends(byId);
+            return users;
+        } finally {
+            commonFriendsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Тот же обход, что и в памяти: не больше maxFanOut друзей пользователя и не больше maxFanOut друзей
+    // у каждого из них, только выборка у крупных узлов — наименьшие ID. Подсчёт и отбор — в базе
+    @Override
+    public Map<Long, Integer> recommendFriends(long userId, int limit, int maxFanOut) {
+        long started = System.nanoTime();
+        try {
+            requireUser(userId);
+            Map<Long, Integer> result = new LinkedHashMap<>();
+            namedJdbc.query("SELECT candidate, COUNT(*) AS mutual "
+                            + "FROM (SELECT f2.friend_id AS candidate, "
+                            + "ROW_NUMBER() OVER (PARTITION BY f2.user_id ORDER BY f2.friend_id) AS position "
+                            + "FROM (SELECT friend_id FROM friendships WHERE user_id = :id "
+                            + "ORDER BY friend_id LIMIT :fanOut) f1 "
+                            + "JOIN friendships f2 ON f2.user_id = f1.friend_id) fof "
+                            + "WHERE position <= :fanOut AND candidate <> :id "
+                            + "AND NOT EXISTS (SELECT 1 FROM friendships own "
+                            + "WHERE own.user_id = :id AND own.friend_id = fof.candidate) "
+                            + "GROUP BY candidate ORDER BY mutual DESC, candidate LIMIT :limit",
+                    Map.of("id", userId, "fanOut", maxFanOut, "limit", limit),
+                    rs -> {
+                        result.put(rs.getLong("candidate"), rs.getInt("mutual"));
+                    });
+            return result;
+        } finally {
+            recommendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long countUsers() {
+        return count("SELECT COUNT(*) FROM users");
+    }
+
+    // каждая дружба хранится двумя строками
+    @Override
+    public long countFriendships() {
+        return count("SELECT COUNT(*) FROM friendships") / 2;
+    }
+
+    @Override
+    @Transactional
+    public void clear() {
+        jdbc.update("DELETE FROM friendships");
+        jdbc.update("DELETE FROM users");
+        jdbc.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH 1");
+        log.info("Хранилище пользователей очищено");
+    }
+
+    // Блокирует строки обоих пользователей по возрастанию ID, чтобы встречные запросы не ждали друг друга
+    private void lockUsers(long userId, long friendId) {
+        for (long id : new long[]{Math.min(userId, friendId), Math.max(userId, friendId)}) {
+            List<Long> found = jdbc.queryForList("SELECT id FROM users WHERE id = ? FOR UPDATE", Long.class, id);
+            if (found.isEmpty()) {
+                log.debug("Пользователь с ID {} не найден", id);
+                throw new NotFoundException("Пользователь с id=" + id + " не найден");
+            }
+        }
+    }
+
+    private void requireUser(long userId) {
+        Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, userId);
+        if (count == null || count == 0) {
+            log.debug("Пользователь с ID {} не найден", userId);
+            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+    }
+
+    private void insertFriends(User user) {
+        if (user.getFriends().isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(user.getFriends().size());
+        LongHashSet.from(user.getFriends()).forEachLong(friendId -> rows.add(new Object[]{user.getId(), friendId}));
+        jdbc.batchUpdate("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", rows);
+    }
+
+    private void loadFriends(Map<Long, User> users) {
+        for (List<Long> chunk : chunks(users.keySet())) {
+            namedJdbc.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids)", Map.of("ids", chunk),
+                    rs -> {
+                        users.get(rs.getLong("user_id")).getFriends().add(rs.getLong("friend_id"));
+                    });
+        }
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + IN_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private long count(String sql) {
+        Long count = jdbc.queryForObject(sql, Long.class);
+        return count != null ? count : 0;
+    }
+
+    private record FriendKey(long userId, long friendId) {
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.PersistentLongSet;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+// Версия пользователя, опубликованная хранилищем в памяти. Один и тот же объект лежит в карте и уходит всем
+// читателям, поэтому сеттеры запрещены: чтобы изменить пользователя, нужно прислать новый объект в хранилище
+final class PublishedUser extends User {
+
+    PublishedUser(long id, String email, String login, String name, LocalDate birthday,
+                  PersistentLongSet friends) {
+        super(id, email, login, name, birthday, friends);
+    }
+
+    @Override
+    public void setId(long id) {
+        throw published();
+    }
+
+    @Override
+    public void setEmail(String email) {
+        throw published();
+    }
+
+    @Override
+    public void setLogin(String login) {
+        throw published();
+    }
+
+    @Override
+    public void setName(String name) {
+        throw published();
+    }
+
+    @Override
+    public void setBirthday(LocalDate birthday) {
+        throw published();
+    }
+
+    @Override
+    public void setFriends(Set<Long> friends) {
+        throw published();
+    }
+
+    private static UnsupportedOperationException published() {
+        return new UnsupportedOperationException("Опубликованную версию пользователя нельзя изменять");
+    }
+}
@@ -1,8 +1,14 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.FriendshipChange;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
@@ -10,9 +16,51 @@ public interface UserStorage {
 
     User getUserById(long id);
 
+    List<User> getUsersByIds(Collection<Long> ids);
+
+    // Те из ids, для которых есть пользователь, без загрузки самих пользователей
+    Set<Long> getExistingIds(Collection<Long> ids);
+
+    // Не больше limit пользователей по возрастанию ID, начиная со следующего после afterId
+    List<User> getUsersPage(long afterId, int limit);
+
+    // Не больше limit друзей пользователя по возрастанию ID, начиная со следующего после afterId
+    List<User> getFriendsPage(long userId, long afterId, int limit);
+
+    // Не больше limit ID друзей пользователя в произвольном порядке, без загрузки самих друзей.
+    // Ограничение позволяет узнать, что друзей больше limit, не копируя список «знаменитости» целиком
+    long[] getFriendIds(long userId, int limit);
+
+    // Обходит всех пользователей, не собирая их в один список; action вызывается вне блокировок хранилища
+    void forEachUser(Consumer<User> action);
+
     User createUser(User user);
 
+    // Сохраняет уже проверенных пользователей одним вызовом и проставляет им ID в порядке списка
+    List<User> createUsers(List<User> users);
+
     User updateUser(User user);
 
+    boolean addFriend(long userId, long friendId);
+
+    // false, если пользователи не были друзьями
+    boolean removeFriend(long userId, long friendId);
+
+    // Применяет изменения дружбы за один проход и возвращает статусы в порядке changes:
+    // APPLIED, UNCHANGED или NOT_FOUND, если нет одного из пользователей
+    List<BatchItemStatus> applyFriendshipChanges(List<FriendshipChange> changes);
+
+    List<User> getCommonFriends(long userId, long otherUserId);
+
+    // Друзья друзей, которые ещё не друзья пользователю: ID → число общих друзей, не больше limit записей
+    // по убыванию общих друзей, при равенстве по ID. У каждого узла обхода берётся не больше maxFanOut друзей
+    Map<Long, Integer> recommendFriends(long userId, int limit, int maxFanOut);
+
+    // Количества для метрик: вызываются при каждом сборе, поэтому должны быть дешёвыми
+    long countUsers();
+
+    // Число пар друзей: дружба взаимная, каждая пара хранится у обоих пользователей
+    long countFriendships();
+
     void clear();
 }
@@ -0,0 +1,366 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+
+// Множество примитивных long на открытой адресации с линейным пробированием.
+// Хранит ID без упаковки в Long и без узлов HashMap: ~11-21 байт на элемент вместо ~48+.
+// Не потокобезопасно: изменения сериализует владелец (хранилище)
+public class LongHashSet extends AbstractSet<Long> {
+    private static final long[] EMPTY_TABLE = new long[0];
+    private static final int MIN_CAPACITY = 8;
+
+    // 0 занят под признак пустой ячейки, поэтому наличие нуля хранится отдельно
+    private long[] table = EMPTY_TABLE;
+    private boolean hasZero;
+    private int size;
+
+    public LongHashSet() {
+    }
+
+    public LongHashSet(int expectedSize) {
+        if (expectedSize > 0) {
+            table = new long[capacityFor(expectedSize)];
+        }
+    }
+
+    public LongHashSet(Collection<Long> values) {
+        this(values.size());
+        if (values instanceof LongHashSet other) {
+            other.forEachLong(this::add);
+        } else {
+            values.forEach(this::add);
+        }
+    }
+
+    // Возвращает переданное множество, если оно уже примитивное, иначе его компактную копию
+    public static LongHashSet from(Collection<Long> values) {
+        if (values == null) {
+            return new LongHashSet();
+        }
+        return values instanceof LongHashSet set ? set : new LongHashSet(values);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long value && contains(value.longValue());
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return hasZero;
+        }
+        return size > 0 && table.length > 0 && table[indexOf(value)] == value;
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    public boolean add(long value) {
+        if (value == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        if (table.length == 0 || (size + 1) * 4L > table.length * 3L) {
+            resize(Math.max(MIN_CAPACITY, table.length * 2));
+        }
+        int index = indexOf(value);
+        if (table[index] == value) {
+            return false;
+        }
+        table[index] = value;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long value && remove(value.longValue());
+    }
+
+    public boolean remove(long value) {
+        if (value == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        if (table.length == 0) {
+            return false;
+        }
+        int index = indexOf(value);
+        if (table[index] != value) {
+            return false;
+        }
+        shiftBack(index, null);
+        size--;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        table = EMPTY_TABLE;
+        hasZero = false;
+        size = 0;
+    }
+
+    public void forEachLong(LongConsumer action) {
+        if (hasZero) {
+            action.accept(0L);
+        }
+        for (long value : table) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    // Обходит не больше limit элементов в порядке таблицы: для узлов с огромным числом связей это
+    // детерминированная выборка вместо полного обхода
+    public void forEachLong(LongConsumer action, int limit) {
+        int remaining = limit;
+        if (hasZero && remaining > 0) {
+            action.accept(0L);
+            remaining--;
+        }
+        for (int i = 0; i < table.length && remaining > 0; i++) {
+            if (table[i] != 0) {
+                action.accept(table[i]);
+                remaining--;
+            }
+        }
+    }
+
+    public long[] toLongArray() {
+        long[] result = new long[size];
+        int i = 0;
+        if (hasZero) {
+            result[i++] = 0L;
+        }
+        for (long value : table) {
+            if (value != 0) {
+                result[i++] = value;
+            }
+        }
+        return result;
+    }
+
+    // Не больше limit наименьших значений, строго больших after, по возрастанию. Один проход
+    // с ограниченной max-кучей: O(n log limit) и память на limit элементов вместо сортировки всего множества
+    public long[] smallestAfter(long after, int limit) {
+        long[] heap = new long[Math.min(limit, size)];
+        int count = 0;
+        if (hasZero && after < 0) {
+            count = offer(heap, count, 0L);
+        }
+        for (long value : table) {
+            if (value != 0 && value > after) {
+                count = offer(heap, count, value);
+            }
+        }
+        long[] result = count == heap.length ? heap : Arrays.copyOf(heap, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    static int offer(long[] heap, int count, long value) {
+        if (count < heap.length) {
+            int child = count;
+            while (child > 0 && heap[(child - 1) / 2] < value) {
+                heap[child] = heap[(child - 1) / 2];
+                child = (child - 1) / 2;
+            }
+            heap[child] = value;
+            return count + 1;
+        }
+        if (count == 0 || value >= heap[0]) {
+            return count;
+        }
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= value) {
+                break;
+            }
+            heap[parent] = heap[child];
+            parent = child;
+        }
+        heap[parent] = value;
+        return count;
+    }
+
+    // Пересечение двух множеств: обходим меньшее и проверяем элементы в большем
+    public static long[] intersect(LongHashSet first, LongHashSet second) {
+        LongHashSet smaller = first.size <= second.size ? first : second;
+        LongHashSet larger = smaller == first ? second : first;
+        long[] result = new long[smaller.size];
+        int count = 0;
+        if (smaller.hasZero && larger.hasZero) {
+            result[count++] = 0L;
+        }
+        if (larger.size > 0) {
+            for (long value : smaller.table) {
+                if (value != 0 && larger.contains(value)) {
+                    result[count++] = value;
+                }
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // Таблица обходится от конца к началу: сдвиг назад при удалении через итератор переносит в пройденную
+    // часть только уже выданные элементы. Исключение — хвост кластера, перешедший через начало таблицы:
+    // такие элементы откладываются и выдаются после таблицы
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            private boolean zeroPending = hasZero;
+            private int next = advance(table.length - 1);
+            private long[] deferred = EMPTY_TABLE;
+            private int deferredCount;
+            // ячейка последнего выданного элемента; -1 — ноль или отложенный элемент, -2 — удалять нечего
+            private int lastSlot = -2;
+            private long lastValue;
+
+            @Override
+            public boolean hasNext() {
+                return zeroPending || next >= 0 || deferredCount > 0;
+            }
+
+            @Override
+            public Long next() {
+                if (zeroPending) {
+                    zeroPending = false;
+                    lastSlot = -1;
+                    lastValue = 0L;
+                } else if (next >= 0) {
+                    lastSlot = next;
+                    lastValue = table[next];
+                    next = advance(next - 1);
+                } else if (deferredCount > 0) {
+                    lastSlot = -1;
+                    lastValue = deferred[--deferredCount];
+                } else {
+                    throw new NoSuchElementException();
+                }
+                return lastValue;
+            }
+
+            @Override
+            public void remove() {
+                if (lastSlot == -2) {
+                    throw new IllegalStateException();
+                }
+                if (lastSlot == -1) {
+                    // к этому моменту таблица пройдена целиком, и удаление по значению ничего не пропустит
+                    LongHashSet.this.remove(lastValue);
+                } else {
+                    shiftBack(lastSlot, this::defer);
+                    size--;
+                    next = advance(lastSlot - 1);
+                }
+                lastSlot = -2;
+            }
+
+            private void defer(long value) {
+                if (deferredCount == deferred.length) {
+                    deferred = Arrays.copyOf(deferred, Math.max(MIN_CAPACITY, deferredCount * 2));
+                }
+                deferred[deferredCount++] = value;
+            }
+
+            private int advance(int from) {
+                int i = from;
+                while (i >= 0 && table[i] == 0) {
+                    i--;
+                }
+                return i;
+            }
+        };
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (long value : table) {
+            hash += Long.hashCode(value);
+        }
+        return hash;
+    }
+
+    // Ячейка, где лежит значение, либо первая пустая ячейка на его пути пробирования
+    private int indexOf(long value) {
+        int mask = table.length - 1;
+        int index = mix(value) & mask;
+        while (table[index] != 0 && table[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    // Удаление без "надгробий": сдвигаем назад элементы кластера, которые могут занять освободившуюся ячейку.
+    // wrapped получает элементы, перенесённые из начала таблицы за ячейку removed (нужно итератору)
+    private void shiftBack(int removed, LongConsumer wrapped) {
+        int mask = table.length - 1;
+        int gap = removed;
+        int index = removed;
+        while (true) {
+            index = (index + 1) & mask;
+            long value = table[index];
+            if (value == 0) {
+                break;
+            }
+            int home = mix(value) & mask;
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                table[gap] = value;
+                if (wrapped != null && index < removed && gap >= removed) {
+                    wrapped.accept(value);
+                }
+                gap = index;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        for (long value : old) {
+            if (value != 0) {
+                table[indexOf(value)] = value;
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L < expectedSize * 4L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.util;
+
+// Счётчики по примитивным long-ключам на открытой адресации: ключи и значения в двух массивах,
+// без упаковки и без узлов HashMap. Удаления нет — счётчик живёт в пределах одного расчёта.
+// Не потокобезопасно
+public class LongIntCounter {
+    private static final int MIN_CAPACITY = 16;
+
+    // 0 занят под признак пустой ячейки, поэтому счётчик нуля хранится отдельно
+    private long[] keys;
+    private int[] counts;
+    private int zeroCount;
+    private int size;
+
+    public LongIntCounter() {
+        this(0);
+    }
+
+    public LongIntCounter(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L < expectedSize * 4L) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(long key) {
+        if (key == 0) {
+            return zeroCount;
+        }
+        int index = indexOf(key);
+        return keys[index] == key ? counts[index] : 0;
+    }
+
+    // Увеличивает счётчик ключа на единицу и возвращает новое значение
+    public int increment(long key) {
+        return add(key, 1);
+    }
+
+    // Прибавляет положительное delta к счётчику ключа и возвращает новое значение
+    public int add(long key, int delta) {
+        if (key == 0) {
+            if (zeroCount == 0) {
+                size++;
+            }
+            zeroCount += delta;
+            return zeroCount;
+        }
+        int index = indexOf(key);
+        if (keys[index] != key) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                resize(keys.length * 2);
+                index = indexOf(key);
+            }
+            keys[index] = key;
+            size++;
+        }
+        counts[index] += delta;
+        return counts[index];
+    }
+
+    // Не больше limit ключей с наибольшими счётчиками, при равенстве — с меньшим ключом первым.
+    // Один проход с ограниченной min-кучей: O(n log limit) вместо сортировки всех ключей
+    public long[] top(int limit) {
+        int capacity = Math.min(limit, size);
+        long[] heapKeys = new long[capacity];
+        int[] heapCounts = new int[capacity];
+        int count = 0;
+        if (zeroCount > 0) {
+            count = offer(heapKeys, heapCounts, count, 0L, zeroCount);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                count = offer(heapKeys, heapCounts, count, keys[i], counts[i]);
+            }
+        }
+
+        // извлекаем из кучи от худшего к лучшему и заполняем результат с конца
+        long[] result = new long[count];
+        for (int last = count - 1; last >= 0; last--) {
+            result[last] = heapKeys[0];
+            heapKeys[0] = heapKeys[last];
+            heapCounts[0] = heapCounts[last];
+            siftDown(heapKeys, heapCounts, last, 0);
+        }
+        return result;
+    }
+
+    private static int offer(long[] heapKeys, int[] heapCounts, int count, long key, int value) {
+        if (count < heapKeys.length) {
+            int child = count;
+            while (child > 0 && worse(key, value, heapKeys[(child - 1) / 2], heapCounts[(child - 1) / 2])) {
+                heapKeys[child] = heapKeys[(child - 1) / 2];
+                heapCounts[child] = heapCounts[(child - 1) / 2];
+                child = (child - 1) / 2;
+            }
+            heapKeys[child] = key;
+            heapCounts[child] = value;
+            return count + 1;
+        }
+        if (count == 0 || !worse(heapKeys[0], heapCounts[0], key, value)) {
+            return count;
+        }
+        heapKeys[0] = key;
+        heapCounts[0] = value;
+        siftDown(heapKeys, heapCounts, count, 0);
+        return count;
+    }
+
+    // В корне кучи — худший из отобранных
+    private static void siftDown(long[] heapKeys, int[] heapCounts, int count, int from) {
+        long key = heapKeys[from];
+        int value = heapCounts[from];
+        int parent = from;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && worse(heapKeys[child + 1], heapCounts[child + 1], heapKeys[child],
+                    heapCounts[child])) {
+                child++;
+            }
+            if (!worse(heapKeys[child], heapCounts[child], key, value)) {
+                break;
+            }
+            heapKeys[parent] = heapKeys[child];
+            heapCounts[parent] = heapCounts[child];
+            parent = child;
+        }
+        heapKeys[parent] = key;
+        heapCounts[parent] = value;
+    }
+
+    private static boolean worse(long key, int value, long otherKey, int otherValue) {
+        return value < otherValue || value == otherValue && key > otherKey;
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
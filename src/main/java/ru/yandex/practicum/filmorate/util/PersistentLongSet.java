@@ -0,0 +1,364 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+
+// Неизменяемое множество long — префиксное дерево по 5 бит хеша на уровень (HAMT): в узле битовые карты
+// значений и поддеревьев и плотные массивы без пустых ячеек. plus и minus возвращают новую версию,
+// копируя только путь от корня до изменённого узла — O(log32 n) вместо копии всего множества,
+// остальные узлы общие со старой версией. Опубликованную версию можно читать из любого потока без блокировок
+public final class PersistentLongSet extends AbstractSet<Long> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final long[] NO_VALUES = new long[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    public static final PersistentLongSet EMPTY = new PersistentLongSet(Node.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentLongSet(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    // Возвращает переданное множество, если оно уже неизменяемое, иначе строит дерево за один проход
+    public static PersistentLongSet from(Set<Long> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY;
+        }
+        if (values instanceof PersistentLongSet set) {
+            return set;
+        }
+        long[] array = values instanceof LongHashSet set ? set.toLongArray()
+                : values.stream().mapToLong(Long::longValue).toArray();
+        long[] hashes = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            hashes[i] = mix(array[i]);
+        }
+        return new PersistentLongSet(build(array, hashes, new long[array.length], new long[array.length],
+                0, array.length, 0), array.length);
+    }
+
+    public PersistentLongSet plus(long value) {
+        Node updated = root.plus(value, mix(value), 0);
+        return updated == root ? this : new PersistentLongSet(updated, size + 1);
+    }
+
+    public PersistentLongSet minus(long value) {
+        Node updated = root.minus(value, mix(value), 0);
+        if (updated == root) {
+            return this;
+        }
+        return size == 1 ? EMPTY : new PersistentLongSet(updated, size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long value && contains(value.longValue());
+    }
+
+    public boolean contains(long value) {
+        long hash = mix(value);
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = bit(hash, shift);
+            if ((node.dataMap & bit) != 0) {
+                return node.values[index(node.dataMap, bit)] == value;
+            }
+            if ((node.nodeMap & bit) == 0) {
+                return false;
+            }
+            node = node.children[index(node.nodeMap, bit)];
+        }
+    }
+
+    public void forEachLong(LongConsumer action) {
+        root.forEach(action, new int[]{size});
+    }
+
+    // Обходит не больше limit элементов в порядке дерева, как LongHashSet.forEachLong(action, limit)
+    public void forEachLong(LongConsumer action, int limit) {
+        if (limit > 0) {
+            root.forEach(action, new int[]{limit});
+        }
+    }
+
+    public long[] toLongArray() {
+        long[] result = new long[size];
+        int[] count = new int[1];
+        forEachLong(value -> result[count[0]++] = value);
+        return result;
+    }
+
+    // Не больше limit наименьших значений, строго больших after, по возрастанию; та же ограниченная куча,
+    // что в LongHashSet.smallestAfter
+    public long[] smallestAfter(long after, int limit) {
+        long[] heap = new long[Math.min(limit, size)];
+        int[] count = new int[1];
+        forEachLong(value -> {
+            if (value > after) {
+                count[0] = LongHashSet.offer(heap, count[0], value);
+            }
+        });
+        long[] result = count[0] == heap.length ? heap : Arrays.copyOf(heap, count[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // Пересечение двух множеств: обходим меньшее и проверяем элементы в большем
+    public static long[] intersect(PersistentLongSet first, PersistentLongSet second) {
+        PersistentLongSet smaller = first.size <= second.size ? first : second;
+        PersistentLongSet larger = smaller == first ? second : first;
+        long[] result = new long[smaller.size];
+        int[] count = new int[1];
+        smaller.forEachLong(value -> {
+            if (larger.contains(value)) {
+                result[count[0]++] = value;
+            }
+        });
+        return count[0] == result.length ? result : Arrays.copyOf(result, count[0]);
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            // глубина дерева не больше 13 уровней: на каждом из 64 бит хеша уходит по 5
+            private final Node[] nodes = new Node[14];
+            private final int[] positions = new int[14];
+            private int depth;
+            private int remaining = size;
+
+            {
+                nodes[0] = root;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Long next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                // позиции узла: сначала значения, затем поддеревья
+                while (true) {
+                    Node node = nodes[depth];
+                    int position = positions[depth]++;
+                    if (position < node.values.length) {
+                        remaining--;
+                        return node.values[position];
+                    }
+                    int child = position - node.values.length;
+                    if (child < node.children.length) {
+                        depth++;
+                        nodes[depth] = node.children[child];
+                        positions[depth] = 0;
+                    } else {
+                        depth--;
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = new int[1];
+        forEachLong(value -> hash[0] += Long.hashCode(value));
+        return hash[0];
+    }
+
+    // Биективное перемешивание: разные значения дают разные 64-битные хеши, поэтому два значения всегда
+    // расходятся не глубже последнего уровня и узлы коллизий не нужны
+    private static long mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static int bit(long hash, int shift) {
+        return 1 << ((int) (hash >>> shift) & MASK);
+    }
+
+    private static int index(int map, int bit) {
+        return Integer.bitCount(map & (bit - 1));
+    }
+
+    // Раскладывает values[from, to) по фрагменту хеша сортировкой подсчётом и рекурсивно строит поддеревья
+    // для фрагментов, куда попало больше одного значения
+    private static Node build(long[] values, long[] hashes, long[] valueBuffer, long[] hashBuffer,
+                              int from, int to, int shift) {
+        int[] starts = new int[MASK + 2];
+        for (int i = from; i < to; i++) {
+            starts[((int) (hashes[i] >>> shift) & MASK) + 1]++;
+        }
+        int dataMap = 0;
+        int nodeMap = 0;
+        for (int chunk = 0; chunk <= MASK; chunk++) {
+            int count = starts[chunk + 1];
+            if (count == 1) {
+                dataMap |= 1 << chunk;
+            } else if (count > 1) {
+                nodeMap |= 1 << chunk;
+            }
+            starts[chunk + 1] += starts[chunk];
+        }
+        int[] next = Arrays.copyOf(starts, MASK + 1);
+        for (int i = from; i < to; i++) {
+            int target = from + next[(int) (hashes[i] >>> shift) & MASK]++;
+            valueBuffer[target] = values[i];
+            hashBuffer[target] = hashes[i];
+        }
+        System.arraycopy(valueBuffer, from, values, from, to - from);
+        System.arraycopy(hashBuffer, from, hashes, from, to - from);
+
+        long[] nodeValues = dataMap == 0 ? NO_VALUES : new long[Integer.bitCount(dataMap)];
+        Node[] children = nodeMap == 0 ? NO_CHILDREN : new Node[Integer.bitCount(nodeMap)];
+        int valueCount = 0;
+        int childCount = 0;
+        for (int chunk = 0; chunk <= MASK; chunk++) {
+            int start = from + starts[chunk];
+            int end = from + starts[chunk + 1];
+            if (end - start == 1) {
+                nodeValues[valueCount++] = values[start];
+            } else if (end - start > 1) {
+                children[childCount++] = build(values, hashes, valueBuffer, hashBuffer, start, end, shift + BITS);
+            }
+        }
+        return new Node(dataMap, nodeMap, nodeValues, children);
+    }
+
+    // Узел не меняется после создания. Поддерево, кроме корня, всегда хранит не меньше двух значений:
+    // одиночное значение поднимается в родителя
+    private static final class Node {
+        static final Node EMPTY = new Node(0, 0, NO_VALUES, NO_CHILDREN);
+
+        final int dataMap;
+        final int nodeMap;
+        final long[] values;
+        final Node[] children;
+
+        Node(int dataMap, int nodeMap, long[] values, Node[] children) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.values = values;
+            this.children = children;
+        }
+
+        Node plus(long value, long hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit);
+                long existing = values[i];
+                if (existing == value) {
+                    return this;
+                }
+                Node pair = pair(existing, mix(existing), value, hash, shift + BITS);
+                return valueToChild(bit, i, pair);
+            }
+            if ((nodeMap & bit) != 0) {
+                int i = index(nodeMap, bit);
+                Node updated = children[i].plus(value, hash, shift + BITS);
+                return updated == children[i] ? this : withChild(i, updated);
+            }
+            int i = index(dataMap, bit);
+            long[] copy = new long[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, i);
+            copy[i] = value;
+            System.arraycopy(values, i, copy, i + 1, values.length - i);
+            return new Node(dataMap | bit, nodeMap, copy, children);
+        }
+
+        Node minus(long value, long hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit);
+                if (values[i] != value) {
+                    return this;
+                }
+                long[] copy = values.length == 1 ? NO_VALUES : new long[values.length - 1];
+                System.arraycopy(values, 0, copy, 0, i);
+                System.arraycopy(values, i + 1, copy, i, values.length - i - 1);
+                return new Node(dataMap & ~bit, nodeMap, copy, children);
+            }
+            if ((nodeMap & bit) != 0) {
+                int i = index(nodeMap, bit);
+                Node updated = children[i].minus(value, hash, shift + BITS);
+                if (updated == children[i]) {
+                    return this;
+                }
+                if (updated.nodeMap == 0 && updated.values.length == 1) {
+                    return childToValue(bit, i, updated.values[0]);
+                }
+                return withChild(i, updated);
+            }
+            return this;
+        }
+
+        // Возвращает false, когда исчерпан остаток remaining
+        boolean forEach(LongConsumer action, int[] remaining) {
+            for (long value : values) {
+                if (remaining[0] == 0) {
+                    return false;
+                }
+                action.accept(value);
+                remaining[0]--;
+            }
+            for (Node child : children) {
+                if (!child.forEach(action, remaining)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Node withChild(int i, Node child) {
+            Node[] copy = children.clone();
+            copy[i] = child;
+            return new Node(dataMap, nodeMap, values, copy);
+        }
+
+        private Node valueToChild(int bit, int valueIndex, Node child) {
+            long[] valueCopy = values.length == 1 ? NO_VALUES : new long[values.length - 1];
+            System.arraycopy(values, 0, valueCopy, 0, valueIndex);
+            System.arraycopy(values, valueIndex + 1, valueCopy, valueIndex, values.length - valueIndex - 1);
+            int childIndex = index(nodeMap, bit);
+            Node[] childCopy = new Node[children.length + 1];
+            System.arraycopy(children, 0, childCopy, 0, childIndex);
+            childCopy[childIndex] = child;
+            System.arraycopy(children, childIndex, childCopy, childIndex + 1, children.length - childIndex);
+            return new Node(dataMap & ~bit, nodeMap | bit, valueCopy, childCopy);
+        }
+
+        private Node childToValue(int bit, int childIndex, long value) {
+            Node[] childCopy = children.length == 1 ? NO_CHILDREN : new Node[children.length - 1];
+            System.arraycopy(children, 0, childCopy, 0, childIndex);
+            System.arraycopy(children, childIndex + 1, childCopy, childIndex, children.length - childIndex - 1);
+            int valueIndex = index(dataMap, bit);
+            long[] valueCopy = new long[values.length + 1];
+            System.arraycopy(values, 0, valueCopy, 0, valueIndex);
+            valueCopy[valueIndex] = value;
+            System.arraycopy(values, valueIndex, valueCopy, valueIndex + 1, values.length - valueIndex);
+            return new Node(dataMap | bit, nodeMap & ~bit, valueCopy, childCopy);
+        }
+
+        private static Node pair(long first, long firstHash, long second, long secondHash, int shift) {
+            int firstChunk = (int) (firstHash >>> shift) & MASK;
+            int secondChunk = (int) (secondHash >>> shift) & MASK;
+            if (firstChunk == secondChunk) {
+                Node child = pair(first, firstHash, second, secondHash, shift + BITS);
+                return new Node(0, 1 << firstChunk, NO_VALUES, new Node[]{child});
+            }
+            long[] pairValues = firstChunk < secondChunk ? new long[]{first, second} : new long[]{second, first};
+            return new Node((1 << firstChunk) | (1 << secondChunk), 0, pairValues, NO_CHILDREN);
+        }
+    }
+}
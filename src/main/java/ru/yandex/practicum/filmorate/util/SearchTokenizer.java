@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Разбивает текст на слова для поиска: последовательности букв и цифр любого алфавита в нижнем регистре,
+// «ё» приводится к «е». Повторы слов отбрасываются, порядок первого появления сохраняется
+public final class SearchTokenizer {
+    // длиннее слова обрезаются: префиксного поиска по первым символам хватает, а словарь не раздувается
+    public static final int MAX_TOKEN_LENGTH = 32;
+
+    private SearchTokenizer() {
+    }
+
+    public static Set<String> tokens(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        if (text == null) {
+            return result;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (token.length() < MAX_TOKEN_LENGTH) {
+                    token.appendCodePoint(normalize(codePoint));
+                }
+            } else if (!token.isEmpty()) {
+                result.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            result.add(token.toString());
+        }
+        return result;
+    }
+
+    private static int normalize(int codePoint) {
+        int lower = Character.toLowerCase(codePoint);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
@@ -0,0 +1,42 @@
+CREATE TABLE IF NOT EXISTS films (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE         NOT NULL,
+    duration     BIGINT       NOT NULL,
+    likes_count  INT          NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (likes_count DESC, id);
+
+-- диапазонные фильтры GET /films: начало диапазона ищется по индексу, строки идут уже в порядке ответа
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date, id);
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration, id);
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE
+);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id BIGINT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+-- лайки пользователя по возрастанию ID фильма: страницы /users/{id}/likes читаются диапазоном без сортировки
+CREATE INDEX IF NOT EXISTS likes_user_film_idx ON likes (user_id, film_id);
+
+-- friend_id без внешнего ключа: список друзей может прийти вместе с пользователем раньше, чем создан сам друг
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id BIGINT NOT NULL,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+-- обратные связи по friend_id. С user_id в ключе вставка находит место строки сразу,
+-- а не перебирает все строки того же friend_id
+CREATE INDEX IF NOT EXISTS friendships_friend_user_idx ON friendships (friend_id, user_id);
@@ -5,6 +5,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -89,4 +96,116 @@ class FilmControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(1));
     }
-}
\ No newline at end of file
+
+    // Проверяет, что неполная страница отдаётся без курсора, а полная — со ссылкой на следующую
+    @Test
+    void shouldReturnFilmsPageWithNextLink() throws Exception {
+        String filmJson = "{ \"name\": \"Страница\", \"description\": \"desc\", \"releaseDate\": \"2025-01-01\", \"duration\": 120 }";
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/films")
+                            .contentType("application/json")
+                            .content(filmJson))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/films?limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(header().string("Link", "<http://localhost/films?limit=1&after=1>; rel=\"next\""));
+
+        mockMvc.perform(get("/films").param("after", "1000000").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Проверяет фильтр по диапазону даты релиза и длительности и переход по его составному курсору
+    @Test
+    void shouldFilterFilmsByReleaseDateAndDuration() throws Exception {
+        String filmJson = "{ \"name\": \"Фильтр\", \"description\": \"desc\", \"releaseDate\": \"1950-05-05\", \"duration\": 77 }";
+        mockMvc.perform(post("/films")
+                        .contentType("application/json")
+                        .content(filmJson))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films")
+                        .param("releasedFrom", "1950-01-01")
+                        .param("releasedTo", "1950-12-31")
+                        .param("maxDuration", "80"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Фильтр"));
+
+        mockMvc.perform(get("/films").param("releasedFrom", "1950-01-01").param("minDuration", "78"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.name == 'Фильтр')]").isEmpty());
+
+        mockMvc.perform(post("/films")
+                        .contentType("application/json")
+                        .content(filmJson))
+                .andExpect(status().isOk());
+        String cursor = mockMvc.perform(get("/films?releasedFrom=1950-01-01&releasedTo=1950-12-31&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string("Link", startsWith("<http://localhost/films?releasedFrom=1950-01-01"
+                        + "&releasedTo=1950-12-31&limit=1&after=" + LocalDate.of(1950, 5, 5).toEpochDay() + ":")))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/films")
+                        .param("releasedFrom", "1950-01-01")
+                        .param("releasedTo", "1950-12-31")
+                        .param("limit", "1")
+                        .param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/films").param("after", "1").param("minDuration", "1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films").param("after", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Проверяет, что выгрузка отдаёт фильмы построчно в формате NDJSON
+    @Test
+    void shouldExportFilmsAsNdjson() throws Exception {
+        String filmJson = "{ \"name\": \"Выгрузка\", \"description\": \"desc\", \"releaseDate\": \"2025-01-01\", \"duration\": 120 }";
+        mockMvc.perform(post("/films")
+                        .contentType("application/json")
+                        .content(filmJson))
+                .andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        assertTrue(body.endsWith("\n"));
+        assertTrue(body.lines().allMatch(line -> line.startsWith("{\"id\":")));
+        assertTrue(body.lines().anyMatch(line -> line.contains("\"name\":\"Выгрузка\"")));
+    }
+
+    // Проверяет, что импорт принимает CSV по заголовку Content-Type и отвечает отчётом по строкам
+    @Test
+    void shouldImportFilmsFromCsv() throws Exception {
+        String csv = "name,description,releaseDate,duration\n"
+                + "Импорт,\"Описание, с запятой\",2020-01-01,90\n"
+                + "Импорт без даты,,,90\n";
+
+        mockMvc.perform(post("/films/import")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3))
+                .andExpect(jsonPath("$.errors[0].message").value("Дата релиза обязательна"));
+    }
+}
@@ -5,6 +5,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -80,4 +82,26 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message")
                         .value("Пользователь с id=999 не найден"));
     }
-}
\ No newline at end of file
+
+    // Проверяет, что выгрузка отдаёт пользователей построчно в формате NDJSON
+    @Test
+    void shouldExportUsersAsNdjson() throws Exception {
+        String userJson = "{ \"email\": \"export@mail.ru\", \"login\": \"export\", \"birthday\": \"2000-01-01\" }";
+        mockMvc.perform(post("/users")
+                        .contentType("application/json")
+                        .content(userJson))
+                .andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.endsWith("\n"));
+        assertTrue(body.lines().allMatch(line -> line.startsWith("{\"id\":")));
+        assertTrue(body.lines().anyMatch(line -> line.contains("\"login\":\"export\"")));
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedRingTest {
+
+    // Проверяет, что при вставке почти по порядку буфер хранит последние capacity событий по eventId
+    // и отдаёт их страницами от новых к старым
+    @Test
+    void shouldKeepNewestEventsInOrder() {
+        Random random = new Random(42);
+        FeedRing ring = new FeedRing(100);
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 1_000; id++) {
+            ids.add(id);
+        }
+        // соседние события меняются местами, как при одновременной публикации
+        for (int i = 0; i + 1 < ids.size(); i++) {
+            if (random.nextInt(4) == 0) {
+                ids.set(i, ids.set(i + 1, ids.get(i)));
+            }
+        }
+        ids.forEach(id -> ring.add(event(id)));
+
+        List<Long> walked = new ArrayList<>();
+        long before = Long.MAX_VALUE;
+        while (true) {
+            List<FeedEvent> page = new ArrayList<>();
+            ring.collectBefore(before, 7, page);
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(event -> walked.add(event.getEventId()));
+            before = page.get(page.size() - 1).getEventId();
+        }
+
+        List<Long> expected = ids.stream().sorted(Comparator.reverseOrder()).limit(100).toList();
+        assertEquals(expected, walked);
+    }
+
+    // Проверяет, что событие старше всех хранимых в заполненный буфер не попадает
+    @Test
+    void addShouldDropEventOlderThanFullBuffer() {
+        FeedRing ring = new FeedRing(2);
+        ring.add(event(5));
+        ring.add(event(6));
+        ring.add(event(4));
+
+        List<FeedEvent> events = new ArrayList<>();
+        ring.collectBefore(Long.MAX_VALUE, 10, events);
+        assertEquals(List.of(6L, 5L), events.stream().map(FeedEvent::getEventId).toList());
+    }
+
+    // Проверяет, что нулевой размер входящих не проходит проверку при старте, а не падает делением на ноль в кольце
+    @Test
+    void shouldRejectNonPositiveInboxSize() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(ValidationAutoConfiguration.class))
+                .withUserConfiguration(FeedPropertiesConfiguration.class)
+                .withPropertyValues("filmorate.feed.inbox-size=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    private static FeedEvent event(long id) {
+        return new FeedEvent(id, id, 1L, EventType.LIKE, 1L);
+    }
+
+    @EnableConfigurationProperties(FeedProperties.class)
+    static class FeedPropertiesConfiguration {
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Порог знаменитости занижен, чтобы проверить чтение из журнала на нескольких пользователях
+@SpringBootTest
+@TestPropertySource(properties = "filmorate.feed.celebrity-threshold=2")
+class FeedServiceTest {
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private FeedService feedService;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage.clear();
+        userStorage.clear();
+        feedService.clear();
+    }
+
+    // Проверяет, что лайки и дружбы попадают в ленты друзей автора от новых к старым и листаются по курсору
+    @Test
+    void getFeed_ShouldShowFriendsEventsNewestFirst() {
+        createUsers(3);
+        filmStorage.createFilm(new Film(0L, "Фильм", "Описание", LocalDate.now(), 100, new HashSet<>()));
+        userService.addFriend(1L, 2L);
+        userService.addFriend(1L, 3L);
+        filmService.addLike(1L, 2L);
+
+        List<FeedEvent> feed = feedService.getFeed(1L, 0, 10).getItems();
+        assertEquals(1, feed.size());
+        assertEquals(EventType.LIKE, feed.get(0).getEventType());
+        assertEquals(2L, feed.get(0).getUserId());
+
+        Page<FeedEvent> first = feedService.getFeed(2L, 0, 1);
+        assertEquals(List.of(3L), first.getItems().stream().map(FeedEvent::getEntityId).toList());
+        Page<FeedEvent> second = feedService.getFeed(2L, first.getNextCursor(), 1);
+        assertEquals(List.of(2L), second.getItems().stream().map(FeedEvent::getEntityId).toList());
+        assertNull(second.getNextCursor());
+
+        assertEquals(1, feedService.getFeed(3L, 0, 10).getItems().size());
+        assertThrows(NotFoundException.class, () -> feedService.getFeed(999L, 0, 10));
+    }
+
+    // Проверяет, что события пользователя с числом друзей выше порога читаются из его журнала без повторов,
+    // видны новому другу и пропадают из ленты бывшего друга
+    @Test
+    void getFeed_ShouldReadCelebrityEventsOnRead() {
+        createUsers(5);
+        filmStorage.createFilm(new Film(0L, "Фильм", "Описание", LocalDate.now(), 100, new HashSet<>()));
+        userService.addFriend(1L, 2L);
+        userService.addFriend(1L, 3L);
+        userService.addFriend(1L, 4L);
+        filmService.addLike(1L, 1L);
+        userService.addFriend(5L, 1L);
+
+        List<FeedEvent> feed = feedService.getFeed(2L, 0, 10).getItems();
+        assertEquals(4, feed.size());
+        assertEquals(4, feed.stream().map(FeedEvent::getEventId).distinct().count());
+        assertEquals(EventType.LIKE, feed.get(0).getEventType());
+        assertEquals(4, feedService.getFeed(5L, 0, 10).getItems().size());
+        assertEquals(EventType.FRIEND, feedService.getFeed(1L, 0, 10).getItems().get(0).getEventType());
+
+        userService.removeFriend(1L, 2L);
+
+        assertTrue(feedService.getFeed(2L, 0, 10).getItems().stream()
+                .noneMatch(event -> event.getEventType() == EventType.LIKE));
+    }
+
+    private void createUsers(int count) {
+        for (int i = 0; i < count; i++) {
+            userStorage.createUser(new User(0L, "user@mail.ru", "user", "Name", LocalDate.now(), new HashSet<>()));
+        }
+    }
+}
@@ -6,15 +6,33 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.ChangeAction;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmRangeCursor;
+import ru.yandex.practicum.filmorate.model.FilmRangePage;
+import ru.yandex.practicum.filmorate.model.FilmRecommendation;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,10 +48,21 @@ class FilmServiceTest {
     @Autowired
     private FilmService filmService;
 
+    @Autowired
+    private PopularFilmsCache popularFilmsCache;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private TrendingFilms trendingFilms;
+
     @BeforeEach
     void setUp() {
         filmStorage.clear();
         userStorage.clear();
+        popularFilmsCache.invalidate();
+        trendingFilms.clear();
     }
 
     // Проверяет, что лайк от пользователя успешно добавляется к фильму
@@ -92,6 +121,115 @@ class FilmServiceTest {
         assertEquals(2L, popular.get(1).getId());
     }
 
+    // Проверяет, что рейтинг пересчитывается после лайков и при равенстве лайков фильмы упорядочены по ID
+    @Test
+    void getPopularFilms_ShouldFollowLikesAndBreakTiesById() {
+        User user = new User(1L, "user1@mail.ru", "user1", "Name1", LocalDate.now(), new HashSet<>());
+        userStorage.createUser(user);
+        for (int i = 1; i <= 3; i++) {
+            filmStorage.createFilm(new Film(i, "Фильм " + i, "Описание", LocalDate.now(), 100, new HashSet<>()));
+        }
+
+        assertEquals(List.of(1L, 2L, 3L), filmService.getPopularFilms(3).stream().map(Film::getId).toList());
+
+        filmService.addLike(3L, 1L);
+        assertEquals(List.of(3L, 1L), filmService.getPopularFilms(2).stream().map(Film::getId).toList());
+
+        filmService.removeLike(3L, 1L);
+        assertEquals(List.of(1L, 2L, 3L), filmService.getPopularFilms(10).stream().map(Film::getId).toList());
+    }
+
+    // Проверяет, что по курсору страницами обходятся все фильмы по возрастанию ID без пропусков и повторов
+    @Test
+    void getFilmsPage_ShouldWalkAllFilmsByCursor() {
+        for (int i = 1; i <= 25; i++) {
+            filmStorage.createFilm(new Film(0L, "Фильм " + i, "Описание", LocalDate.now(), 100, new HashSet<>()));
+        }
+
+        List<Long> walked = new ArrayList<>();
+        Page<Film> page = filmService.getFilmsPage(0, 10);
+        walked.addAll(page.getItems().stream().map(Film::getId).toList());
+        while (page.getNextCursor() != null) {
+            assertEquals(10, page.getItems().size());
+            page = filmService.getFilmsPage(page.getNextCursor(), 10);
+            walked.addAll(page.getItems().stream().map(Film::getId).toList());
+        }
+
+        assertEquals(5, page.getItems().size());
+        assertEquals(LongStream.rangeClosed(1, 25).boxed().toList(), walked);
+        assertNull(filmService.getFilmsPage(20, 5).getNextCursor());
+    }
+
+    // Проверяет, что лайки пользователя листаются по курсору и совпадают с лайками фильмов
+    // после параллельных лайков и снятий из многих потоков
+    @Test
+    void getLikedFilmsPage_ShouldFollowLikesUnderConcurrency() throws Exception {
+        int users = 8;
+        int films = 25;
+        for (int i = 0; i < users; i++) {
+            userStorage.createUser(new User(0L, "user@mail.ru", "user", "Name", LocalDate.now(), new HashSet<>()));
+        }
+        for (int i = 0; i < films; i++) {
+            filmStorage.createFilm(new Film(0L, "Фильм", "Описание", LocalDate.now(), 100, new HashSet<>()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (long userId = 1; userId <= users; userId++) {
+                long user = userId;
+                tasks.add(executor.submit(() -> {
+                    for (long filmId = 1; filmId <= films; filmId++) {
+                        filmService.addLike(filmId, user);
+                    }
+                    for (long filmId = 2; filmId <= films; filmId += 2) {
+                        filmService.removeLike(filmId, user);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        List<Long> odd = LongStream.rangeClosed(1, films).filter(id -> id % 2 == 1).boxed().toList();
+        for (long userId = 1; userId <= users; userId++) {
+            List<Long> walked = new ArrayList<>();
+            Page<Film> page = filmService.getLikedFilmsPage(userId, 0, 5);
+            walked.addAll(page.getItems().stream().map(Film::getId).toList());
+            while (page.getNextCursor() != null) {
+                page = filmService.getLikedFilmsPage(userId, page.getNextCursor(), 5);
+                walked.addAll(page.getItems().stream().map(Film::getId).toList());
+            }
+            assertEquals(odd, walked);
+        }
+        assertEquals(users, filmStorage.getFilmById(1L).getLikes().size());
+        assertTrue(filmStorage.getFilmById(2L).getLikes().isEmpty());
+        assertThrows(NotFoundException.class, () -> filmService.getLikedFilmsPage(999L, 0, 5));
+    }
+
+    // Проверяет, что повторный запрос популярных отдаётся из кэша, а лайк и новый фильм сбрасывают его
+    @Test
+    void getPopularFilms_ShouldBeCachedUntilFilmsOrLikesChange() {
+        userStorage.createUser(new User(1L, "user1@mail.ru", "user1", "Name1", LocalDate.now(), new HashSet<>()));
+        filmService.createFilm(new Film(0L, "Фильм 1", "Описание", LocalDate.now(), 100, new HashSet<>()));
+        filmService.createFilm(new Film(0L, "Фильм 2", "Описание", LocalDate.now(), 100, new HashSet<>()));
+
+        List<Film> first = filmService.getPopularFilms(5);
+        assertSame(first, filmService.getPopularFilms(5));
+
+        filmService.addLike(2L, 1L);
+        List<Film> afterLike = filmService.getPopularFilms(5);
+        assertNotSame(first, afterLike);
+        assertEquals(List.of(2L, 1L), afterLike.stream().map(Film::getId).toList());
+
+        filmService.createFilm(new Film(0L, "Фильм 3", "Описание", LocalDate.now(), 100, new HashSet<>()));
+        assertEquals(3, filmService.getPopularFilms(5).size());
+    }
+
     // Проверяет, что при попытке поставить лайк несуществующему фильму выбрасывается NotFoundException
     @Test
     void addLike_ShouldThrowWhenFilmNotFound() {
@@ -111,4 +249,323 @@ class FilmServiceTest {
 
         assertThrows(NotFoundException.class, () -> filmService.removeLike(1L, 1L));
     }
+
+    // Проверяет, что пакет лайков применяется по порядку и для каждого элемента возвращается свой результат
+    @Test
+    void applyLikeChanges_ShouldReturnResultPerItem() {
+        userStorage.createUser(new User(1L, "user1@mail.ru", "user1", "Name1", LocalDate.now(), new HashSet<>()));
+        userStorage.createUser(new User(2L, "user2@mail.ru", "user2", "Name2", LocalDate.now(), new HashSet<>()));
+        filmStorage.createFilm(new Film(1L, "Фильм 1", "Описание", LocalDate.now(), 100, new HashSet<>()));
+        filmStorage.createFilm(new Film(2L, "Фильм 2", "Описание", LocalDate.now(), 100, new HashSet<>()));
+        assertEquals(1L, filmService.getPopularFilms(1).get(0).getId());
+
+        List<BatchItemResult> results = filmService.applyLikeChanges(List.of(
+                new LikeChange(2L, 1L, ChangeAction.ADD),
+                new LikeChange(2L, 2L, ChangeAction.ADD),
+                new LikeChange(2L, 1L, ChangeAction.ADD),
+                new LikeChange(1L, 1L, ChangeAction.REMOVE),
+                new LikeChange(999L, 1L, ChangeAction.ADD),
+                new LikeChange(1L, 999L, ChangeAction.ADD),
+                new LikeChange(0L, 1L, ChangeAction.ADD),
+                new LikeChange(2L, 2L, ChangeAction.REMOVE)));
+
+        assertEquals(List.of(BatchItemStatus.APPLIED, BatchItemStatus.APPLIED, BatchItemStatus.UNCHANGED,
+                        BatchItemStatus.UNCHANGED, BatchItemStatus.NOT_FOUND, BatchItemStatus.NOT_FOUND,
+                        BatchItemStatus.INVALID, BatchItemStatus.APPLIED),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertNull(results.get(0).getMessage());
+        assertEquals(Set.of(1L), filmStorage.getFilmById(2L).getLikes());
+        assertEquals(1, filmStorage.countLikes());
+        assertEquals(2L, filmService.getPopularFilms(1).get(0).getId());
+
+        List<BatchItemResult> withNull = filmService.applyLikeChanges(
+                Arrays.asList(null, new LikeChange(1L, 2L, ChangeAction.ADD)));
+        assertEquals(List.of(BatchItemStatus.INVALID, BatchItemStatus.APPLIED),
+                withNull.stream().map(BatchItemResult::getStatus).toList());
+    }
+
+    // Проверяет, что рекомендуются фильмы пользователей с общими лайками, взвешенные числом общих лайков,
+    // без уже лайкнутых, и что выдача сразу следует за лайками и обновлением фильма
+    @Test
+    void recommendFilms_ShouldSuggestFilmsOfSimilarUsers() {
+        for (long id = 1; id <= 4; id++) {
+            userStorage.createUser(new User(id, "user" + id + "@mail.ru", "user" + id, "Name", LocalDate.now(),
+                    new HashSet<>()));
+        }
+        for (long id = 1; id <= 5; id++) {
+            filmStorage.createFilm(new Film(id, "Фильм " + id, "Описание", LocalDate.now(), 120, new HashSet<>()));
+        }
+        filmService.addLike(1L, 1L);
+        filmService.addLike(2L, 1L);
+        filmService.addLike(1L, 2L);
+        filmService.addLike(2L, 2L);
+        filmService.addLike(3L, 2L);
+        filmService.addLike(1L, 3L);
+        filmService.addLike(4L, 3L);
+        filmService.addLike(5L, 4L);
+
+        List<FilmRecommendation> recommendations = recommendationService.recommendFilms(1L, 10);
+
+        assertEquals(List.of(3L, 4L), recommendations.stream().map(r -> r.getFilm().getId()).toList());
+        assertEquals(List.of(2, 1), recommendations.stream().map(FilmRecommendation::getScore).toList());
+        assertEquals(1, recommendationService.recommendFilms(1L, 1).size());
+        assertTrue(recommendationService.recommendFilms(4L, 10).isEmpty());
+        assertThrows(NotFoundException.class, () -> recommendationService.recommendFilms(999L, 10));
+
+        filmService.addLike(3L, 1L);
+        assertEquals(List.of(4L), recommendationService.recommendFilms(1L, 10).stream()
+                .map(r -> r.getFilm().getId()).toList());
+
+        filmService.updateFilm(new Film(4L, "Фильм 4", "Описание", LocalDate.now(), 120, new HashSet<>()));
+        assertTrue(recommendationService.recommendFilms(1L, 10).isEmpty());
+    }
+
+    // Проверяет, что фильтры по дате релиза и длительности возвращают фильмы диапазона в порядке индекса,
+    // листаются составным курсором через фильмы с одинаковым значением и следуют за обновлением фильма
+    @Test
+    void findFilms_ShouldFilterByRangesAndFollowUpdates() {
+        filmStorage.createFilm(new Film(1L, "Первый", "", LocalDate.of(2000, 1, 1), 90, new HashSet<>()));
+        filmStorage.createFilm(new Film(2L, "Второй", "", LocalDate.of(1999, 6, 1), 150, new HashSet<>()));
+        filmStorage.createFilm(new Film(3L, "Третий", "", LocalDate.of(2010, 3, 3), 90, new HashSet<>()));
+        filmStorage.createFilm(new Film(4L, "Четвёртый", "", LocalDate.of(2000, 1, 1), 200, new HashSet<>()));
+
+        FilmFilter released = new FilmFilter(LocalDate.of(2000, 1, 1), LocalDate.of(2005, 1, 1), null, null);
+        FilmFilter shortFilms = new FilmFilter(null, null, null, 100L);
+        assertEquals(List.of(1L, 4L), ids(filmService.findFilms(released, null, 10).getItems()));
+        assertEquals(List.of(1L, 3L), ids(filmService.findFilms(shortFilms, null, 10).getItems()));
+        assertEquals(List.of(2L, 4L), ids(filmService.findFilms(
+                new FilmFilter(LocalDate.of(1990, 1, 1), null, 100L, null), null, 10).getItems()));
+        assertEquals(List.of(2L), ids(filmService.findFilms(
+                new FilmFilter(LocalDate.of(1990, 1, 1), null, null, null), null, 1).getItems()));
+        assertTrue(filmService.findFilms(new FilmFilter(null, null, 300L, null), null, 10).getItems().isEmpty());
+
+        filmService.updateFilm(new Film(3L, "Третий", "", LocalDate.of(2001, 1, 1), 120, new HashSet<>()));
+        assertEquals(List.of(1L, 4L, 3L), ids(filmService.findFilms(released, null, 10).getItems()));
+        assertEquals(List.of(1L), ids(filmService.findFilms(shortFilms, null, 10).getItems()));
+
+        FilmRangePage first = filmService.findFilms(released, null, 1);
+        assertEquals(List.of(1L), ids(first.getItems()));
+        assertEquals(new FilmRangeCursor(LocalDate.of(2000, 1, 1).toEpochDay(), 1L), first.getNextCursor());
+        FilmRangePage second = filmService.findFilms(released, first.getNextCursor(), 2);
+        assertEquals(List.of(4L, 3L), ids(second.getItems()));
+        assertNull(second.getNextCursor());
+        assertEquals(List.of(2L, 4L), ids(filmService.findFilms(new FilmFilter(null, null, 100L, null),
+                new FilmRangeCursor(120, 3L), 10).getItems()));
+    }
+
+    // Проверяет, что поиск находит слова целиком и по префиксу, ранжирует название выше описания и лайкнутые
+    // выше остальных, требует всех слов запроса и следует за обновлением фильма
+    @Test
+    void searchFilms_ShouldRankMatchesAndFollowUpdates() {
+        userStorage.createUser(new User(1L, "user1@mail.ru", "user1", "Name", LocalDate.now(), new HashSet<>()));
+        filmStorage.createFilm(new Film(1L, "Ёлки", "Новогодняя комедия", LocalDate.now(), 90, new HashSet<>()));
+        filmStorage.createFilm(new Film(2L, "Матрица", "Hacker Neo learns the truth", LocalDate.now(), 136,
+                new HashSet<>()));
+        filmStorage.createFilm(new Film(3L, "Комедия положений", "Classic", LocalDate.now(), 100, new HashSet<>()));
+        filmStorage.createFilm(new Film(4L, "Ночь", "Ёлочные игрушки", LocalDate.now(), 80, new HashSet<>()));
+        filmStorage.createFilm(new Film(5L, "Комедия ошибок", null, LocalDate.now(), 95, new HashSet<>()));
+
+        assertEquals(List.of(1L), ids(filmService.searchFilms("елки", 10)));
+        assertEquals(List.of(1L, 4L), ids(filmService.searchFilms("ЁЛ", 10)));
+        assertEquals(List.of(3L, 5L, 1L), ids(filmService.searchFilms("комедия", 10)));
+        assertEquals(List.of(3L), ids(filmService.searchFilms("комедия", 1)));
+        assertEquals(List.of(2L), ids(filmService.searchFilms("neo, матр", 10)));
+        assertTrue(filmService.searchFilms("neo ночь", 10).isEmpty());
+        assertTrue(filmService.searchFilms("?!", 10).isEmpty());
+
+        filmService.addLike(5L, 1L);
+        assertEquals(List.of(5L, 3L, 1L), ids(filmService.searchFilms("комедия", 10)));
+
+        filmService.updateFilm(new Film(2L, "Начало", "Dream heist", LocalDate.now(), 148, new HashSet<>()));
+        assertTrue(filmService.searchFilms("матр", 10).isEmpty());
+        assertEquals(List.of(2L), ids(filmService.searchFilms("нача", 10)));
+    }
+
+    // Проверяет, что у слова из тысяч фильмов отсечение кандидатов не теряет популярные совпадения
+    @Test
+    void searchFilms_ShouldKeepPopularMatchesOfFrequentWord() {
+        userStorage.createUser(new User(1L, "user1@mail.ru", "user1", "Name", LocalDate.now(), new HashSet<>()));
+        for (long id = 1; id <= 6_000; id++) {
+            filmStorage.createFilm(new Film(id, "Фильм " + id, "Описание", LocalDate.now(), 90, new HashSet<>()));
+        }
+        List<Long> liked = new ArrayList<>();
+        for (long id = 600; id <= 6_000; id += 600) {
+            filmService.addLike(id, 1L);
+            liked.add(id);
+        }
+
+        assertEquals(liked, ids(filmService.searchFilms("фильм", 10)));
+    }
+
+    // Проверяет, что тренды окна следуют за одиночными и пакетными лайками и их снятием
+    @Test
+    void getTrendingFilms_ShouldFollowLikes() {
+        for (long id = 1; id <= 3; id++) {
+            userStorage.createUser(new User(id, "user" + id + "@mail.ru", "user" + id, "Name", LocalDate.now(),
+                    new HashSet<>()));
+            filmStorage.createFilm(new Film(id, "Фильм " + id, "Описание", LocalDate.now(), 120, new HashSet<>()));
+        }
+        filmService.addLike(2L, 1L);
+        filmService.addLike(2L, 2L);
+        filmService.addLike(3L, 1L);
+        filmService.applyLikeChanges(List.of(new LikeChange(3L, 2L, ChangeAction.ADD),
+                new LikeChange(3L, 3L, ChangeAction.ADD)));
+
+        assertEquals(List.of(3L, 2L), filmService.getTrendingFilms(TrendingWindow.HOUR, 10).stream()
+                .map(Film::getId).toList());
+        assertEquals(List.of(3L), filmService.getTrendingFilms(TrendingWindow.WEEK, 1).stream()
+                .map(Film::getId).toList());
+
+        filmService.removeLike(3L, 1L);
+        filmService.removeLike(3L, 2L);
+        assertEquals(List.of(2L, 3L), filmService.getTrendingFilms(TrendingWindow.DAY, 10).stream()
+                .map(Film::getId).toList());
+    }
+
+    // Проверяет, что при параллельных лайках от многих потоков ни один лайк и ни один ID не теряется
+    @Test
+    void addLike_ShouldNotLoseLikesUnderConcurrency() throws Exception {
+        int users = 2000;
+        int films = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                tasks.add(executor.submit(() -> userStorage.createUser(
+                        new User(0L, "user@mail.ru", "user", "Name", LocalDate.now(), new HashSet<>()))));
+            }
+            for (int i = 0; i < films; i++) {
+                tasks.add(executor.submit(() -> filmStorage.createFilm(
+                        new Film(0L, "Фильм", "Описание", LocalDate.now(), 100, new HashSet<>()))));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            tasks.clear();
+
+            for (long userId = 1; userId <= users; userId++) {
+                for (long filmId = 1; filmId <= films; filmId++) {
+                    long film = filmId;
+                    long user = userId;
+                    tasks.add(executor.submit(() -> filmService.addLike(film, user)));
+                }
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        assertEquals(users, userStorage.getAllUsers().size());
+        for (long filmId = 1; filmId <= films; filmId++) {
+            assertEquals(users, filmStorage.getFilmById(filmId).getLikes().size());
+        }
+        assertEquals(films, filmService.getPopularFilms(films).size());
+    }
+
+    // Проверяет, что пакеты лайков вперемешку с одиночными лайками тех же фильмов не падают и не сбивают
+    // счётчик популярности: после гонки у фильма N ровно N - 1 лайков, и рейтинг идёт в этом порядке
+    @Test
+    void applyLikeChanges_ShouldKeepPopularityUnderConcurrentSingleLikes() throws Exception {
+        int users = 5;
+        int films = 4;
+        for (int i = 0; i < users; i++) {
+            userStorage.createUser(new User(0L, "user@mail.ru", "user", "Name", LocalDate.now(), new HashSet<>()));
+        }
+        for (int i = 0; i < films; i++) {
+            filmStorage.createFilm(new Film(0L, "Фильм", "Описание", LocalDate.now(), 100, new HashSet<>()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                int seed = t;
+                tasks.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 500; i++) {
+                        long filmId = 1 + random.nextInt(films);
+                        long userId = 1 + random.nextInt(users);
+                        try {
+                            if (random.nextBoolean()) {
+                                filmService.addLike(filmId, userId);
+                            } else {
+                                filmService.removeLike(filmId, userId);
+                            }
+                        } catch (ValidationException | NotFoundException e) {
+                            // лайк уже есть или его нет — гонка с пакетом
+                        }
+                    }
+                }));
+                tasks.add(executor.submit(() -> {
+                    Random random = new Random(seed + 10);
+                    for (int i = 0; i < 200; i++) {
+                        List<LikeChange> changes = new ArrayList<>();
+                        for (int j = 0; j < 5; j++) {
+                            changes.add(new LikeChange(1 + random.nextInt(films), 1 + random.nextInt(users),
+                                    random.nextBoolean() ? ChangeAction.ADD : ChangeAction.REMOVE));
+                        }
+                        filmService.applyLikeChanges(changes);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        }
+
+        List<LikeChange> reset = new ArrayList<>();
+        for (long filmId = 1; filmId <= films; filmId++) {
+            for (long userId = 1; userId <= users; userId++) {
+                reset.add(new LikeChange(filmId, userId, userId < filmId ? ChangeAction.ADD : ChangeAction.REMOVE));
+            }
+        }
+        filmService.applyLikeChanges(reset);
+        assertEquals(List.of(4L, 3L, 2L, 1L), ids(filmService.getPopularFilms(films)));
+        assertEquals(6, filmStorage.countLikes());
+    }
+
+    // Проверяет, что прочитанный фильм не меняется от последующих лайков, а чтение во время лайков
+    // видит множество целиком: обход даёт ровно size элементов
+    @Test
+    void getFilmById_ShouldReturnStableSnapshotWhileLikesChange() throws Exception {
+        int users = 200;
+        for (int i = 0; i < users; i++) {
+            userStorage.createUser(new User(0L, "user@mail.ru", "user", "Name", LocalDate.now(), new HashSet<>()));
+        }
+        filmStorage.createFilm(new Film(0L, "Фильм", "Описание", LocalDate.now(), 100, new HashSet<>()));
+        Film before = filmService.getFilmById(1L);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (long userId = 1; userId <= users; userId++) {
+                    filmService.addLike(1L, userId);
+                }
+            });
+            Future<?> reader = executor.submit(() -> {
+                while (!writer.isDone()) {
+                    Set<Long> likes = filmService.getFilmById(1L).getLikes();
+                    assertEquals(likes.size(), new ArrayList<>(likes).size());
+                }
+            });
+            writer.get();
+            reader.get();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        assertTrue(before.getLikes().isEmpty());
+        assertEquals(users, filmService.getFilmById(1L).getLikes().size());
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
 }
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportError;
+import ru.yandex.practicum.filmorate.model.ImportFormat;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ImportServiceTest {
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage.clear();
+        userStorage.clear();
+    }
+
+    // Проверяет, что корректные строки NDJSON сохраняются, а ошибочные попадают в отчёт со своими номерами
+    @Test
+    void importFilms_ShouldSaveValidLinesAndReportErrorsPerLine() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 1; i <= 2_500; i++) {
+            body.append("{\"name\": \"Фильм ").append(i).append("\", \"releaseDate\": \"2000-01-01\", ")
+                    .append("\"duration\": 100, \"likes\": [1, 2]}\n");
+        }
+        body.append("{\"name\": \"\", \"releaseDate\": \"2000-01-01\", \"duration\": 100}\n")
+                .append("\n")
+                .append("{\"name\": \"Старый\", \"releaseDate\": \"1890-01-01\", \"duration\": 100}\n")
+                .append("{не json}\n");
+
+        ImportReport report = importService.importFilms(stream(body.toString()), ImportFormat.NDJSON);
+
+        assertEquals(2_503, report.getTotal());
+        assertEquals(2_500, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(List.of(2_501L, 2_503L, 2_504L), report.getErrors().stream().map(ImportError::getLine).toList());
+        assertEquals("Название фильма не может быть пустым", report.getErrors().get(0).getMessage());
+        assertEquals(2_500, filmStorage.countFilms());
+        assertEquals(0, filmStorage.countLikes());
+        Film last = filmStorage.getFilmsPage(0, 2_500).get(2_499);
+        assertEquals("Фильм 2500", last.getName());
+    }
+
+    // Проверяет разбор CSV по заголовку: кавычки, запятые внутри поля и имя из логина, если оно не задано
+    @Test
+    void importUsers_ShouldParseCsvByHeader() throws Exception {
+        String body = """
+                login,email,name,birthday
+                anna,anna@mail.ru,"Анна ""Ани"", Смирнова",1990-05-01
+                boris,boris@mail.ru,,1985-01-01
+                bad login,bad@mail.ru,Имя,1990-01-01
+                clara,clara@mail.ru,Клара
+                """;
+
+        ImportReport report = importService.importUsers(stream(body), ImportFormat.CSV);
+
+        assertEquals(4, report.getTotal());
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(4L, 5L), report.getErrors().stream().map(ImportError::getLine).toList());
+        List<User> users = userStorage.getAllUsers();
+        assertEquals("Анна \"Ани\", Смирнова", users.get(0).getName());
+        assertEquals("boris", users.get(1).getName());
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+// Те же сценарии, что и в ImportServiceTest, но поверх JDBC-хранилищ и встроенной H2
+@ActiveProfiles("jdbc")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:filmorate;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+class JdbcImportServiceTest extends ImportServiceTest {
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+// Те же сценарии, что и в UserServiceTest, но поверх JDBC-хранилищ и встроенной H2
+@ActiveProfiles("jdbc")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:filmorate;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+class JdbcUserServiceTest extends UserServiceTest {
+
+    // Каждая связь — две вставки в H2: 100 тысяч друзей растянули бы прогон на минуты
+    @Override
+    protected int celebrityFriends() {
+        return 5_000;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingFilmsTest {
+    private final AtomicLong now = new AtomicLong(Duration.ofDays(1000).toMillis());
+    private final TrendingFilms trendingFilms = new TrendingFilms(now::get);
+
+    // Проверяет, что рейтинг окна упорядочен по числу лайков, а при равенстве — по ID
+    @Test
+    void top_ShouldRankByLikesInWindow() {
+        trendingFilms.likeAdded(3);
+        trendingFilms.likeAdded(2);
+        trendingFilms.likeAdded(2);
+        trendingFilms.likeAdded(1);
+
+        assertEquals(List.of(2L, 1L, 3L), trendingFilms.top(TrendingWindow.HOUR, 10));
+        assertEquals(List.of(2L), trendingFilms.top(TrendingWindow.WEEK, 1));
+    }
+
+    // Проверяет, что лайки выпадают из часового окна через час, но остаются в суточном
+    @Test
+    void advance_ShouldExpireLikesOutsideWindow() {
+        trendingFilms.likeAdded(1);
+        trendingFilms.likeAdded(1);
+
+        now.addAndGet(Duration.ofMinutes(30).toMillis());
+        trendingFilms.advance();
+        trendingFilms.likeAdded(2);
+        assertEquals(2, trendingFilms.likes(TrendingWindow.HOUR, 1));
+
+        now.addAndGet(Duration.ofMinutes(35).toMillis());
+        trendingFilms.advance();
+        assertEquals(0, trendingFilms.likes(TrendingWindow.HOUR, 1));
+        assertEquals(List.of(2L), trendingFilms.top(TrendingWindow.HOUR, 10));
+        assertEquals(List.of(1L, 2L), trendingFilms.top(TrendingWindow.DAY, 10));
+
+        now.addAndGet(Duration.ofDays(8).toMillis());
+        trendingFilms.advance();
+        assertTrue(trendingFilms.top(TrendingWindow.WEEK, 10).isEmpty());
+    }
+
+    // Проверяет, что снятие лайка, поставленного до окна, не даёт фильму лишний лайк при выпадении корзины
+    @Test
+    void likeRemoved_ShouldNotResurrectLikeAfterExpiry() {
+        trendingFilms.likeRemoved(1);
+        assertTrue(trendingFilms.top(TrendingWindow.HOUR, 10).isEmpty());
+
+        now.addAndGet(Duration.ofHours(2).toMillis());
+        trendingFilms.advance();
+        trendingFilms.likeAdded(1);
+
+        assertEquals(1, trendingFilms.likes(TrendingWindow.HOUR, 1));
+        assertEquals(0, trendingFilms.likes(TrendingWindow.DAY, 1));
+    }
+
+    // Проверяет, что неизвестное окно отклоняется
+    @Test
+    void fromParam_ShouldRejectUnknownWindow() {
+        assertEquals(TrendingWindow.WEEK, TrendingWindow.fromParam("7d"));
+        assertThrows(ValidationException.class, () -> TrendingWindow.fromParam("2h"));
+    }
+}
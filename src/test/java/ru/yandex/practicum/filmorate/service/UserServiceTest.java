@@ -1,18 +1,32 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.ChangeAction;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.FriendshipChange;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,9 +39,24 @@ class UserServiceTest {
     @Autowired
     private UserStorage userStorage;
 
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private FriendRecommendationCache friendRecommendationCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @BeforeEach
     void setUp() {
         userStorage.clear();
+        friendRecommendationCache.invalidateAll();
+    }
+
+    // Число друзей «звезды» в getCommonFriends_ShouldHandleCelebrityWithManyFriends
+    protected int celebrityFriends() {
+        return 100_000;
     }
 
     // Проверяет, что при добавлении друга — оба пользователя добавляются друг другу во множество друзей
@@ -67,6 +96,22 @@ class UserServiceTest {
         assertFalse(userStorage.getUserById(2L).getFriends().contains(1L));
     }
 
+    // Проверяет, что удаление, которое ничего не удалило, не считается в метрике удалений
+    @Test
+    void removeFriend_ShouldNotCountWhenNotFriends() {
+        userStorage.createUser(new User(0L, "user1@mail.ru", "user1", "Name1", LocalDate.now(), new HashSet<>()));
+        userStorage.createUser(new User(0L, "user2@mail.ru", "user2", "Name2", LocalDate.now(), new HashSet<>()));
+        userService.addFriend(1L, 2L);
+        double before = meterRegistry.get("filmorate.friendships.changes").tag("action", "remove").counter().count();
+
+        userService.removeFriend(1L, 2L);
+        userService.removeFriend(1L, 2L);
+
+        assertEquals(before + 1,
+                meterRegistry.get("filmorate.friendships.changes").tag("action", "remove").counter().count());
+        assertFalse(userStorage.removeFriend(2L, 1L));
+    }
+
     // Проверяет, что метод возвращает список общих друзей между двумя пользователями
     @Test
     void getCommonFriends_ShouldReturnCommonFriends() {
@@ -83,9 +128,219 @@ class UserServiceTest {
         assertEquals(3L, commonFriends.get(0).getId());
     }
 
+    // Проверяет, что список друзей собирается одним пакетным запросом, а отсутствующие ID пропускаются
+    @Test
+    void getFriends_ShouldResolveFriendsInBulk() {
+        User user = new User(1L, "user1@mail.ru", "user1", "Name1", LocalDate.now(), new HashSet<>(Set.of(2L, 3L)));
+        User friend1 = new User(2L, "user2@mail.ru", "user2", "Name2", LocalDate.now(), new HashSet<>(Set.of(1L)));
+        User friend2 = new User(3L, "user3@mail.ru", "user3", "Name3", LocalDate.now(), new HashSet<>(Set.of(1L)));
+        userStorage.createUser(user);
+        userStorage.createUser(friend1);
+        userStorage.createUser(friend2);
+
+        List<User> friends = userService.getFriends(1L);
+
+        assertEquals(Set.of(2L, 3L), Set.copyOf(friends.stream().map(User::getId).toList()));
+        assertEquals(1, userStorage.getUsersByIds(List.of(3L, 999L)).size());
+    }
+
+    // Проверяет, что друзья отдаются страницами по возрастанию ID, а последняя страница не даёт курсора
+    @Test
+    void getFriendsPage_ShouldWalkFriendsInIdOrder() {
+        for (int i = 0; i < 30; i++) {
+            userStorage.createUser(new User(0L, "user@mail.ru", "user", "Name", LocalDate.now(), new HashSet<>()));
+        }
+        for (long id = 30; id >= 2; id -= 2) {
+            userService.addFriend(1L, id);
+        }
+
+        Page<User> first = userService.getFriendsPage(1L, 0, 10);
+        Page<User> second = userService.getFriendsPage(1L, first.getNextCursor(), 10);
+
+        assertEquals(List.of(2L, 4L, 6L, 8L, 10L, 12L, 14L, 16L, 18L, 20L),
+                first.getItems().stream().map(User::getId).toList());
+        assertEquals(20L, first.getNextCursor());
+        assertEquals(List.of(22L, 24L, 26L, 28L, 30L), second.getItems().stream().map(User::getId).toList());
+        assertNull(second.getNextCursor());
+        assertEquals(List.of(3L, 4L), userService.getUsersPage(2, 2).getItems().stream().map(User::getId).toList());
+        assertThrows(NotFoundException.class, () -> userService.getFriendsPage(999L, 0, 10));
+    }
+
+    // Проверяет пересечение друзей, когда у одного из пользователей очень много друзей
+    @Test
+    void getCommonFriends_ShouldHandleCelebrityWithManyFriends() {
+        int friends = celebrityFriends();
+        for (int i = 0; i < friends + 2; i++) {
+            userStorage.createUser(new User(0L, "user@mail.ru", "user", "Name", LocalDate.now(), new HashSet<>()));
+        }
+        long celebrityId = 1L;
+        long otherId = 2L;
+        for (long id = 3; id < friends + 3; id++) {
+            userStorage.addFriend(celebrityId, id);
+            if (id % 100 == 0) {
+                userStorage.addFriend(otherId, id);
+            }
+        }
+
+        List<User> commonFriends = userService.getCommonFriends(otherId, celebrityId);
+
+        assertEquals(friends / 100, commonFriends.size());
+        assertTrue(commonFriends.stream().allMatch(user -> user.getId() % 100 == 0));
+    }
+
     // Проверяет, что при попытке добавить в друзья несуществующего пользователя выбрасывается NotFoundException
     @Test
     void addFriend_ShouldThrowWhenUserNotFound() {
         assertThrows(NotFoundException.class, () -> userService.addFriend(1L, 999L));
     }
+
+    // Проверяет, что пакет изменений дружбы применяется по порядку и для каждого элемента возвращается свой результат
+    @Test
+    void applyFriendshipChanges_ShouldReturnResultPerItem() {
+        for (long id = 1; id <= 3; id++) {
+            userStorage.createUser(new User(id, "user" + id + "@mail.ru", "user" + id, "Name", LocalDate.now(),
+                    new HashSet<>()));
+        }
+
+        List<BatchItemResult> results = userService.applyFriendshipChanges(List.of(
+                new FriendshipChange(1L, 2L, ChangeAction.ADD),
+                new FriendshipChange(2L, 1L, ChangeAction.ADD),
+                new FriendshipChange(1L, 3L, ChangeAction.ADD),
+                new FriendshipChange(1L, 1L, ChangeAction.ADD),
+                new FriendshipChange(1L, 999L, ChangeAction.ADD),
+                new FriendshipChange(3L, 1L, ChangeAction.REMOVE),
+                new FriendshipChange(2L, 3L, ChangeAction.REMOVE)));
+
+        assertEquals(List.of(BatchItemStatus.APPLIED, BatchItemStatus.UNCHANGED, BatchItemStatus.APPLIED,
+                        BatchItemStatus.INVALID, BatchItemStatus.NOT_FOUND, BatchItemStatus.APPLIED,
+                        BatchItemStatus.UNCHANGED),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(Set.of(2L), userStorage.getUserById(1L).getFriends());
+        assertEquals(Set.of(1L), userStorage.getUserById(2L).getFriends());
+        assertTrue(userStorage.getUserById(3L).getFriends().isEmpty());
+        assertEquals(1, userStorage.countFriendships());
+
+        List<BatchItemResult> withNull = userService.applyFriendshipChanges(
+                Arrays.asList(null, new FriendshipChange(2L, 3L, ChangeAction.ADD)));
+        assertEquals(List.of(BatchItemStatus.INVALID, BatchItemStatus.APPLIED),
+                withNull.stream().map(BatchItemResult::getStatus).toList());
+    }
+
+    // Проверяет, что пакеты дружбы вперемешку с одиночными добавлениями и удалениями тех же пар не падают
+    // на повторной вставке и оставляют дружбу взаимной
+    @Test
+    void applyFriendshipChanges_ShouldStayConsistentUnderConcurrentSingleChanges() throws Exception {
+        int users = 5;
+        for (int i = 0; i < users; i++) {
+            userStorage.createUser(new User(0L, "user@mail.ru", "user", "Name", LocalDate.now(), new HashSet<>()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                int seed = t;
+                tasks.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 500; i++) {
+                        long userId = 1 + random.nextInt(users);
+                        long friendId = 1 + (userId + random.nextInt(users - 1)) % users;
+                        try {
+                            if (random.nextBoolean()) {
+                                userService.addFriend(userId, friendId);
+                            } else {
+                                userService.removeFriend(userId, friendId);
+                            }
+                        } catch (ValidationException e) {
+                            // уже друзья — гонка с пакетом
+                        }
+                    }
+                }));
+                tasks.add(executor.submit(() -> {
+                    Random random = new Random(seed + 10);
+                    for (int i = 0; i < 200; i++) {
+                        List<FriendshipChange> changes = new ArrayList<>();
+                        for (int j = 0; j < 5; j++) {
+                            long userId = 1 + random.nextInt(users);
+                            long friendId = 1 + (userId + random.nextInt(users - 1)) % users;
+                            changes.add(new FriendshipChange(userId, friendId,
+                                    random.nextBoolean() ? ChangeAction.ADD : ChangeAction.REMOVE));
+                        }
+                        userService.applyFriendshipChanges(changes);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        }
+
+        for (long userId = 1; userId <= users; userId++) {
+            for (long friendId : userStorage.getUserById(userId).getFriends()) {
+                assertTrue(userStorage.getUserById(friendId).getFriends().contains(userId));
+            }
+        }
+    }
+
+    // Проверяет, что друзья друзей ранжируются по числу общих друзей, без самого пользователя и его друзей,
+    // а добавление в друзья сразу убирает кандидата из рекомендаций
+    @Test
+    void recommendFriends_ShouldRankByMutualFriends() {
+        for (long id = 1; id <= 6; id++) {
+            userStorage.createUser(new User(id, "user" + id + "@mail.ru", "user" + id, "Name", LocalDate.now(),
+                    new HashSet<>()));
+        }
+        userService.addFriend(1L, 2L);
+        userService.addFriend(1L, 3L);
+        userService.addFriend(2L, 5L);
+        userService.addFriend(2L, 4L);
+        userService.addFriend(3L, 4L);
+
+        List<FriendRecommendation> recommendations = recommendationService.recommendFriends(1L, 10);
+
+        assertEquals(List.of(4L, 5L), recommendations.stream().map(r -> r.getUser().getId()).toList());
+        assertEquals(List.of(2, 1), recommendations.stream().map(FriendRecommendation::getMutualFriends).toList());
+        assertEquals(1, recommendationService.recommendFriends(1L, 1).size());
+        assertTrue(recommendationService.recommendFriends(6L, 10).isEmpty());
+        assertThrows(NotFoundException.class, () -> recommendationService.recommendFriends(999L, 10));
+
+        userService.addFriend(1L, 4L);
+
+        assertEquals(List.of(5L), recommendationService.recommendFriends(1L, 10).stream()
+                .map(r -> r.getUser().getId()).toList());
+    }
+
+    // Проверяет, что при параллельном добавлении в друзья из многих потоков ни одна дружба не теряется
+    @Test
+    void addFriend_ShouldNotLoseFriendshipsUnderConcurrency() throws Exception {
+        int users = 200;
+        for (int i = 0; i < users; i++) {
+            userStorage.createUser(new User(0L, "user@mail.ru", "user", "Name", LocalDate.now(), new HashSet<>()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (long userId = 1; userId <= users; userId++) {
+                for (long friendId = userId + 1; friendId <= users; friendId++) {
+                    long user = userId;
+                    long friend = friendId;
+                    tasks.add(executor.submit(() -> userService.addFriend(user, friend)));
+                }
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        for (long userId = 1; userId <= users; userId++) {
+            assertEquals(users - 1, userStorage.getUserById(userId).getFriends().size());
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublishedFilmTest {
+
+    // Проверяет, что хранилище отдаёт версии, которые нельзя изменить сеттером, что присланный объект остаётся
+    // у вызывающего изменяемым и не связан с версией, а старая версия не видит последующих лайков
+    @Test
+    void publishedVersionShouldRejectSetters() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Film sent = new Film(0L, "Фильм", "Описание", LocalDate.of(2000, 1, 1), 100, new HashSet<>());
+        Film published = storage.createFilm(sent);
+        sent.setName("Изменён после отправки");
+
+        assertSame(published, storage.getFilmById(published.getId()));
+        assertEquals("Фильм", published.getName());
+        assertThrows(UnsupportedOperationException.class, () -> published.setName("Другое"));
+        assertThrows(UnsupportedOperationException.class, () -> published.setDuration(1));
+        assertThrows(UnsupportedOperationException.class, () -> published.setLikes(Set.of(1L)));
+        assertThrows(UnsupportedOperationException.class, () -> published.getLikes().add(1L));
+
+        storage.addLike(published.getId(), 7L);
+        assertTrue(published.getLikes().isEmpty());
+        assertEquals(Set.of(7L), storage.getFilmById(published.getId()).getLikes());
+
+        Film copy = new Film(published.getId(), "Фильм", "Описание", LocalDate.of(2000, 1, 1), 100, Set.of());
+        assertEquals(copy, published);
+        assertEquals(published, copy);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        assertEquals(objectMapper.writeValueAsString(copy), objectMapper.writeValueAsString(published));
+    }
+}
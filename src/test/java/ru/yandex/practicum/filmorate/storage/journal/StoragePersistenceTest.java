@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoragePersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    // Проверяет, что после перезапуска состояние восстанавливается из журнала
+    @Test
+    void shouldRecoverStateFromJournal() throws Exception {
+        StoragePersistence persistence = start(FsyncPolicy.ALWAYS);
+        fillStorages();
+        persistence.shutdown();
+
+        start(FsyncPolicy.ALWAYS).shutdown();
+
+        assertRecoveredState();
+    }
+
+    // Проверяет восстановление из снимка и проигрывание записей, сделанных после него
+    @Test
+    void shouldRecoverFromSnapshotAndJournalTail() throws Exception {
+        StoragePersistence persistence = start(FsyncPolicy.INTERVAL);
+        fillStorages();
+        persistence.snapshot();
+        filmStorage.removeLike(1L, 2L);
+        filmStorage.addLike(2L, 2L);
+        persistence.shutdown();
+
+        start(FsyncPolicy.INTERVAL).shutdown();
+
+        assertEquals(Set.of(1L), filmStorage.getFilmById(1L).getLikes());
+        assertEquals(Set.of(2L), filmStorage.getFilmById(2L).getLikes());
+        assertEquals(Set.of(2L), userStorage.getUserById(1L).getFriends());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(path -> path.toString().endsWith(".bin")).count());
+        }
+    }
+
+    // Проверяет, что из отображённого снимка фильмы читаются по требованию, а рейтинг, счётчик ID и количества для метрик готовы сразу
+    @Test
+    void shouldServeSnapshotLazily() throws Exception {
+        StoragePersistence persistence = start(FsyncPolicy.NEVER);
+        fillStorages();
+        filmStorage.addLike(2L, 1L);
+        persistence.snapshot();
+        persistence.shutdown();
+
+        start(FsyncPolicy.NEVER);
+
+        assertEquals(2, filmStorage.countFilms());
+        assertEquals(3, filmStorage.countLikes());
+        assertEquals(2, userStorage.countUsers());
+        assertEquals(1, userStorage.countFriendships());
+        assertEquals(List.of(1L, 2L), filmStorage.getPopularFilms(2).stream().map(Film::getId).toList());
+        assertEquals(Set.of(1L), filmStorage.getFilmById(2L).getLikes());
+        assertEquals(3, filmStorage.createFilm(film("Новый")).getId());
+        assertEquals(3, filmStorage.getAllFilms().size());
+        assertEquals(Set.of(2L), userStorage.getUserById(1L).getFriends());
+        assertEquals(3, userStorage.createUser(new User(0L, "user3@mail.ru", "user3", "Имя",
+                LocalDate.of(1992, 1, 1), new HashSet<>())).getId());
+    }
+
+    // Проверяет, что страницы до загрузки снимка сливают фильмы снимка с уже загруженными и новыми без повторов
+    @Test
+    void shouldPageSnapshotBeforeLoadingIt() throws Exception {
+        StoragePersistence persistence = start(FsyncPolicy.NEVER);
+        fillStorages();
+        filmStorage.createFilm(film("Фильм 3"));
+        persistence.snapshot();
+        persistence.shutdown();
+
+        start(FsyncPolicy.NEVER);
+        filmStorage.addLike(2L, 2L);
+        filmStorage.createFilm(film("Новый"));
+
+        assertEquals(List.of(1L, 2L), filmStorage.getFilmsPage(0, 2).stream().map(Film::getId).toList());
+        assertEquals(List.of(2L, 3L, 4L), filmStorage.getFilmsPage(1, 10).stream().map(Film::getId).toList());
+        assertEquals(Set.of(2L), filmStorage.getFilmsPage(1, 1).get(0).getLikes());
+        assertEquals(List.of(2L), userStorage.getUsersPage(1, 10).stream().map(User::getId).toList());
+        assertTrue(filmStorage.getFilmsPage(4, 10).isEmpty());
+    }
+
+    // Проверяет, что после старта со снимка поиск, фильтры и лайки пользователя идут по индексам, построенным
+    // в фоне, и следуют за изменением фильма снимка
+    @Test
+    void shouldIndexSnapshotInBackground() throws Exception {
+        StoragePersistence persistence = start(FsyncPolicy.NEVER);
+        fillStorages();
+        persistence.snapshot();
+        persistence.shutdown();
+
+        start(FsyncPolicy.NEVER);
+        filmStorage.updateFilm(new Film(2L, "Другое название", "Описание", LocalDate.of(2000, 1, 1), 90,
+                new HashSet<>()));
+
+        assertEquals(List.of(1L), filmStorage.searchFilms("фильм", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(2L), filmStorage.searchFilms("друг", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(2L, 1L), filmStorage.findFilms(new FilmFilter(null, null, 90L, 100L), null, 10)
+                .stream().map(Film::getId).toList());
+        assertEquals(List.of(1L), filmStorage.getLikedFilmsPage(2L, 0, 10).stream().map(Film::getId).toList());
+    }
+
+    // Проверяет, что оборванная при падении последняя запись отбрасывается, а предыдущие сохраняются
+    @Test
+    void shouldDropTornTailOfJournal() throws Exception {
+        StoragePersistence persistence = start(FsyncPolicy.NEVER);
+        fillStorages();
+        persistence.shutdown();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        start(FsyncPolicy.NEVER).shutdown();
+
+        assertRecoveredState();
+        assertEquals(3, filmStorage.createFilm(film("Новый")).getId());
+    }
+
+    private StoragePersistence start(FsyncPolicy fsync) {
+        JournalProperties properties = new JournalProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory);
+        properties.setFsync(fsync);
+        properties.setSnapshotInterval(Duration.ZERO);
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        StoragePersistence persistence = new StoragePersistence(filmStorage, userStorage, properties);
+        persistence.recover();
+        return persistence;
+    }
+
+    private void fillStorages() {
+        userStorage.createUser(new User(0L, "user1@mail.ru", "user1", "Имя", LocalDate.of(1990, 1, 1), new HashSet<>()));
+        userStorage.createUser(new User(0L, "user2@mail.ru", "user2", null, LocalDate.of(1991, 1, 1), new HashSet<>()));
+        userStorage.addFriend(1L, 2L);
+        filmStorage.createFilm(film("Фильм 1"));
+        filmStorage.createFilm(film("Фильм 2"));
+        filmStorage.addLike(1L, 1L);
+        filmStorage.addLike(1L, 2L);
+    }
+
+    private void assertRecoveredState() {
+        assertEquals(2, userStorage.getAllUsers().size());
+        assertNull(userStorage.getUserById(2L).getName());
+        assertEquals(Set.of(2L), userStorage.getUserById(1L).getFriends());
+        assertEquals(Set.of(1L), userStorage.getUserById(2L).getFriends());
+        assertEquals("Фильм 1", filmStorage.getFilmById(1L).getName());
+        assertEquals(Set.of(1L, 2L), filmStorage.getFilmById(1L).getLikes());
+        assertEquals(List.of(1L, 2L), filmStorage.getPopularFilms(2).stream().map(Film::getId).toList());
+        assertEquals(2, filmStorage.countFilms());
+        assertEquals(2, filmStorage.countLikes());
+        assertEquals(2, userStorage.countUsers());
+        assertEquals(1, userStorage.countFriendships());
+    }
+
+    private static Film film(String name) {
+        return new Film(0L, name, "Описание", LocalDate.of(2000, 1, 1), 100, new HashSet<>());
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublishedUserTest {
+
+    // Проверяет, что хранилище отдаёт версии, которые нельзя изменить сеттером, а дружба публикует новые версии
+    @Test
+    void publishedVersionShouldRejectSetters() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        User first = storage.createUser(new User(0L, "user1@mail.ru", "user1", "Имя", LocalDate.of(1990, 1, 1),
+                new HashSet<>()));
+        User second = storage.createUser(new User(0L, "user2@mail.ru", "user2", "Имя", LocalDate.of(1991, 1, 1),
+                new HashSet<>()));
+
+        assertThrows(UnsupportedOperationException.class, () -> first.setName("Другое"));
+        assertThrows(UnsupportedOperationException.class, () -> first.setFriends(Set.of(2L)));
+        assertThrows(UnsupportedOperationException.class, () -> first.getFriends().add(2L));
+
+        storage.addFriend(first.getId(), second.getId());
+        assertTrue(first.getFriends().isEmpty());
+        assertEquals(Set.of(second.getId()), storage.getUserById(first.getId()).getFriends());
+        assertEquals(new User(first.getId(), "user1@mail.ru", "user1", "Имя", LocalDate.of(1990, 1, 1), Set.of()),
+                first);
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+
+    // Проверяет, что случайная последовательность операций даёт тот же результат, что и HashSet
+    @Test
+    void shouldBehaveLikeHashSet() {
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(2_000) - 10;
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.add(value), set.add(value));
+                case 1 -> assertEquals(expected.remove(value), set.remove(value));
+                default -> assertEquals(expected.contains(value), set.contains(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        assertEquals(expected, set);
+        assertEquals(set, expected);
+        assertEquals(expected.hashCode(), set.hashCode());
+        assertEquals(expected, new HashSet<>(set));
+    }
+
+    // Проверяет, что удаление через итератор выдаёт каждый элемент ровно один раз, в том числе когда сдвиг назад
+    // переносит элементы кластера через начало таблицы, и что removeIf и retainAll на нём работают как у HashSet
+    @Test
+    void iteratorRemoveShouldVisitEachValueOnce() {
+        Random random = new Random(3);
+        for (int round = 0; round < 2_000; round++) {
+            LongHashSet set = new LongHashSet();
+            Set<Long> expected = new HashSet<>();
+            int count = 1 + random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                long value = random.nextInt(40);
+                set.add(value);
+                expected.add(value);
+            }
+
+            Set<Long> original = new HashSet<>(expected);
+            Set<Long> visited = new HashSet<>();
+            Iterator<Long> iterator = set.iterator();
+            while (iterator.hasNext()) {
+                long value = iterator.next();
+                assertTrue(visited.add(value), "элемент выдан повторно: " + value);
+                if (random.nextBoolean()) {
+                    iterator.remove();
+                    expected.remove(value);
+                }
+            }
+            assertEquals(original, visited);
+            assertEquals(expected, set);
+            assertEquals(expected.size(), set.size());
+        }
+
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (long i = 0; i < 1_000; i++) {
+            set.add(i * 7);
+            expected.add(i * 7);
+        }
+        assertTrue(set.removeIf(value -> value % 2 == 0));
+        expected.removeIf(value -> value % 2 == 0);
+        assertEquals(expected, set);
+        assertTrue(set.retainAll(Set.of(7L, 21L, 22L)));
+        assertEquals(Set.of(7L, 21L), set);
+        assertThrows(IllegalStateException.class, () -> set.iterator().remove());
+    }
+
+    // Проверяет, что from не копирует уже примитивное множество и корректно копирует обычное
+    @Test
+    void fromShouldReuseOrCopy() {
+        LongHashSet set = new LongHashSet();
+        set.add(5L);
+
+        assertSame(set, LongHashSet.from(set));
+        assertEquals(Set.of(1L, 2L), LongHashSet.from(Set.of(1L, 2L)));
+        assertTrue(LongHashSet.from(null).isEmpty());
+    }
+
+    // Проверяет пересечение множеств независимо от порядка аргументов
+    @Test
+    void intersectShouldReturnCommonValues() {
+        LongHashSet small = LongHashSet.from(Set.of(0L, 3L, 7L, 11L));
+        LongHashSet large = new LongHashSet();
+        for (long i = 0; i < 10; i++) {
+            large.add(i);
+        }
+
+        Set<Long> expected = Set.of(0L, 3L, 7L);
+        assertEquals(expected, toSet(LongHashSet.intersect(small, large)));
+        assertEquals(expected, toSet(LongHashSet.intersect(large, small)));
+        assertEquals(0, LongHashSet.intersect(small, new LongHashSet()).length);
+    }
+
+    // Проверяет выбор наименьших значений после курсора в сравнении с сортировкой всего множества
+    @Test
+    void smallestAfterShouldMatchSortedSelection() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet();
+        for (int i = 0; i < 5_000; i++) {
+            set.add(random.nextInt(20_000));
+        }
+        long[] sorted = set.toLongArray();
+        Arrays.sort(sorted);
+
+        for (long after : new long[]{-1, 0, 100, 9_999, 19_999, 30_000}) {
+            for (int limit : new int[]{1, 7, 100, 10_000}) {
+                long[] expected = Arrays.stream(sorted).filter(value -> value > after).limit(limit).toArray();
+                assertArrayEquals(expected, set.smallestAfter(after, limit));
+            }
+        }
+        assertEquals(0, new LongHashSet().smallestAfter(0, 10).length);
+    }
+
+    private static Set<Long> toSet(long[] values) {
+        return Arrays.stream(values).boxed().collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntCounterTest {
+
+    // Проверяет, что счётчики и отбор лучших совпадают с подсчётом через HashMap и полной сортировкой
+    @Test
+    void shouldCountAndRankLikeHashMap() {
+        Random random = new Random(42);
+        LongIntCounter counter = new LongIntCounter();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = (long) Math.sqrt(random.nextInt(4_000_000)) - 5;
+            assertEquals((int) expected.merge(key, 1, Integer::sum), counter.increment(key));
+        }
+
+        assertEquals(expected.size(), counter.size());
+        expected.forEach((key, count) -> assertEquals((int) count, counter.get(key)));
+        assertEquals(0, counter.get(1_000_000L));
+        for (int limit : new int[]{1, 10, 100, expected.size(), expected.size() + 10}) {
+            long[] top = expected.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                    .limit(limit)
+                    .mapToLong(Map.Entry::getKey)
+                    .toArray();
+            assertArrayEquals(top, counter.top(limit));
+        }
+    }
+
+    // Проверяет, что пустой счётчик и нулевой лимит дают пустой результат
+    @Test
+    void topShouldHandleEmptyCounterAndZeroLimit() {
+        LongIntCounter counter = new LongIntCounter();
+        assertEquals(0, counter.top(10).length);
+
+        counter.increment(7L);
+        assertEquals(0, counter.top(0).length);
+        assertArrayEquals(new long[]{7L}, counter.top(10));
+    }
+}
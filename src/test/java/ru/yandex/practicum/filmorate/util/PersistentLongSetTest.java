@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentLongSetTest {
+
+    // Проверяет, что случайная последовательность plus/minus даёт тот же результат, что и HashSet,
+    // включая отрицательные значения, ноль и значения далеко друг от друга
+    @Test
+    void shouldBehaveLikeHashSet() {
+        Random random = new Random(42);
+        PersistentLongSet set = PersistentLongSet.EMPTY;
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextBoolean() ? random.nextInt(2_000) - 10 : random.nextLong() >> random.nextInt(64);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    PersistentLongSet next = set.plus(value);
+                    assertEquals(expected.add(value), next != set);
+                    set = next;
+                }
+                case 1 -> {
+                    PersistentLongSet next = set.minus(value);
+                    assertEquals(expected.remove(value), next != set);
+                    set = next;
+                }
+                default -> assertEquals(expected.contains(value), set.contains(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        assertEquals(expected, set);
+        assertEquals(set, expected);
+        assertEquals(expected.hashCode(), set.hashCode());
+        assertEquals(expected, new HashSet<>(set));
+        assertEquals(expected, toSet(set.toLongArray()));
+        assertEquals(expected, PersistentLongSet.from(new LongHashSet(expected)));
+    }
+
+    // Проверяет, что изменение возвращает новую версию и не трогает старую
+    @Test
+    void plusAndMinusShouldKeepPreviousVersion() {
+        PersistentLongSet first = PersistentLongSet.from(Set.of(1L, 2L, 3L));
+        PersistentLongSet second = first.plus(4L).minus(1L);
+
+        assertEquals(Set.of(1L, 2L, 3L), first);
+        assertEquals(Set.of(2L, 3L, 4L), second);
+        assertSame(first, first.plus(2L));
+        assertSame(first, first.minus(5L));
+        assertSame(first, PersistentLongSet.from(first));
+        assertTrue(PersistentLongSet.from(null).isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(5L));
+        assertThrows(UnsupportedOperationException.class, () -> first.remove(1L));
+    }
+
+    // Проверяет обход с ограничением, пересечение и выбор наименьших значений после курсора
+    @Test
+    void bulkOperationsShouldMatchHashSet() {
+        Random random = new Random(7);
+        LongHashSet source = new LongHashSet();
+        for (int i = 0; i < 5_000; i++) {
+            source.add(random.nextInt(20_000));
+        }
+        PersistentLongSet set = PersistentLongSet.from(source);
+        long[] sorted = source.toLongArray();
+        Arrays.sort(sorted);
+
+        for (long after : new long[]{-1, 0, 100, 9_999, 19_999, 30_000}) {
+            for (int limit : new int[]{1, 7, 100, 10_000}) {
+                assertArrayEquals(source.smallestAfter(after, limit), set.smallestAfter(after, limit));
+            }
+        }
+        List<Long> visited = new ArrayList<>();
+        set.forEachLong(visited::add, 10);
+        assertEquals(10, visited.size());
+        assertTrue(source.containsAll(visited));
+
+        PersistentLongSet small = PersistentLongSet.from(Set.of(0L, 3L, 7L, 30_000L));
+        assertEquals(Set.of(0L, 3L, 7L).stream().filter(source::contains).collect(Collectors.toSet()),
+                toSet(PersistentLongSet.intersect(small, set)));
+        assertEquals(toSet(PersistentLongSet.intersect(small, set)), toSet(PersistentLongSet.intersect(set, small)));
+    }
+
+    private static Set<Long> toSet(long[] values) {
+        return Arrays.stream(values).boxed().collect(Collectors.toSet());
+    }
+}
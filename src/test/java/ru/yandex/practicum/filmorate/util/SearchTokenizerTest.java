@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTokenizerTest {
+
+    // Проверяет, что кириллица и латиница приводятся к нижнему регистру, «ё» — к «е», а разделители отбрасываются
+    @Test
+    void tokens_ShouldSplitAndNormalizeMixedText() {
+        assertEquals(List.of("елки", "палки", "2024", "hello", "world"),
+                List.copyOf(SearchTokenizer.tokens("Ёлки-Палки, 2024! HELLO_World ёлки")));
+        assertTrue(SearchTokenizer.tokens(" ,.!? ").isEmpty());
+        assertTrue(SearchTokenizer.tokens(null).isEmpty());
+    }
+
+    // Проверяет, что слишком длинное слово обрезается, а не выбрасывается
+    @Test
+    void tokens_ShouldTruncateLongWords() {
+        String word = "а".repeat(SearchTokenizer.MAX_TOKEN_LENGTH + 10);
+
+        assertEquals(List.of("а".repeat(SearchTokenizer.MAX_TOKEN_LENGTH)), List.copyOf(SearchTokenizer.tokens(word)));
+    }
+}